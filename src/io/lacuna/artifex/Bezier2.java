@@ -60,6 +60,7 @@ public class Bezier2 {
     public final Vec2 p0, p1, p2;
 
     private boolean noInflections = false;
+    private Box2 bounds, hull;
 
     private QuadraticBezier2(Vec2 p0, Vec2 p1, Vec2 p2, boolean noInflections) {
       this(p0, p1, p2);
@@ -213,11 +214,22 @@ public class Bezier2 {
 
     @Override
     public Box2 bounds() {
-      if (noInflections) {
-        return box(p0, p2);
-      } else {
-        return Curve2.super.bounds();
+      if (bounds == null) {
+        bounds = noInflections ? box(p0, p2) : Curve2.super.bounds();
+      }
+      return bounds;
+    }
+
+    @Override
+    public Box2 hull() {
+      if (hull == null) {
+        hull = new Box2(
+          min(p0.x, min(p1.x, p2.x)),
+          min(p0.y, min(p1.y, p2.y)),
+          max(p0.x, max(p1.x, p2.x)),
+          max(p0.y, max(p1.y, p2.y)));
       }
+      return hull;
     }
 
     @Override
@@ -262,7 +274,7 @@ public class Bezier2 {
     public final Vec2 p0, p1, p2, p3;
 
     private boolean noInflections = false;
-    private Box2 bounds;
+    private Box2 bounds, hull;
 
     private CubicBezier2(Vec2 p0, Vec2 p1, Vec2 p2, Vec2 p3, boolean noInflections) {
       this(p0, p1, p2, p3);
@@ -441,11 +453,22 @@ public class Bezier2 {
 
     @Override
     public Box2 bounds() {
-      if (noInflections) {
-        return box(p0, p3);
-      } else {
-        return Curve2.super.bounds();
+      if (bounds == null) {
+        bounds = noInflections ? box(p0, p3) : Curve2.super.bounds();
+      }
+      return bounds;
+    }
+
+    @Override
+    public Box2 hull() {
+      if (hull == null) {
+        hull = new Box2(
+          min(min(p0.x, p1.x), min(p2.x, p3.x)),
+          min(min(p0.y, p1.y), min(p2.y, p3.y)),
+          max(max(p0.x, p1.x), max(p2.x, p3.x)),
+          max(max(p0.y, p1.y), max(p2.y, p3.y)));
       }
+      return hull;
     }
 
     @Override
@@ -86,6 +86,32 @@ public class Box2 extends Box<Vec2, Box2> {
       & uy >= b.ly;
   }
 
+  @Override
+  public boolean contains(Vec2 v) {
+    return contains(v.x, v.y);
+  }
+
+  public boolean contains(double x, double y) {
+    return x >= lx
+      & ux >= x
+      & y >= ly
+      & uy >= y;
+  }
+
+  /**
+   * Equivalent to {@code expand(epsilon).intersects(b)}, without allocating an intermediate box.
+   */
+  public boolean intersects(Box2 b, double epsilon) {
+    if (isEmpty() || b.isEmpty()) {
+      return false;
+    }
+
+    return b.ux >= lx - epsilon
+      & ux + epsilon >= b.lx
+      & b.uy >= ly - epsilon
+      & uy + epsilon >= b.ly;
+  }
+
   @Override
   public Vec2 lower() {
     return new Vec2(lx, ly);
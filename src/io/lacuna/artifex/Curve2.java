@@ -1,5 +1,6 @@
 package io.lacuna.artifex;
 
+import io.lacuna.artifex.utils.DoubleAccumulator;
 import io.lacuna.artifex.utils.Intersections;
 
 import java.util.Arrays;
@@ -129,6 +130,9 @@ public interface Curve2 {
    */
   double nearestPoint(Vec2 p);
 
+  /**
+   * @return the tightest bounding box which contains the curve
+   */
   default Box2 bounds() {
     Box2 bounds = box(start(), end());
     for (double t : inflections()) {
@@ -137,6 +141,14 @@ public interface Curve2 {
     return bounds;
   }
 
+  /**
+   * @return a bounding box which contains the curve's control points, and therefore the curve, which is at least as
+   * large as {@link #bounds()} but cheaper to compute
+   */
+  default Box2 hull() {
+    return bounds();
+  }
+
   Vec2[] subdivide(double error);
 
   Curve2 transform(Matrix3 m);
@@ -148,4 +160,13 @@ public interface Curve2 {
   default Vec2[] intersections(Curve2 c) {
     return Intersections.intersections(this, c);
   }
+
+  /**
+   * @param c another curve
+   * @param acc an accumulator which the (s, t) pairs of each intersection will be appended to
+   * @return the number of intersections
+   */
+  default int intersections(Curve2 c, DoubleAccumulator acc) {
+    return Intersections.intersections(this, c, acc);
+  }
 }
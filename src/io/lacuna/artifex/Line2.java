@@ -1,6 +1,5 @@
 package io.lacuna.artifex;
 
-import static io.lacuna.artifex.Box.box;
 import static io.lacuna.artifex.Vec.vec;
 
 /**
@@ -8,7 +7,8 @@ import static io.lacuna.artifex.Vec.vec;
  */
 public class Line2 implements Curve2 {
 
-  private final double ax, ay, bx, by;
+  public final double ax, ay, bx, by;
+  private Box2 bounds;
 
   private Line2(double ax, double ay, double bx, double by) {
     this.ax = ax;
@@ -117,7 +117,15 @@ public class Line2 implements Curve2 {
 
   @Override
   public Box2 bounds() {
-    return box(start(), end());
+    if (bounds == null) {
+      bounds = new Box2(ax, ay, bx, by);
+    }
+    return bounds;
+  }
+
+  @Override
+  public Box2 hull() {
+    return bounds();
   }
 
   /**
@@ -1,8 +1,14 @@
 package io.lacuna.artifex;
 
 import io.lacuna.artifex.Ring2.Result;
+import io.lacuna.artifex.utils.Crossings;
+import io.lacuna.artifex.utils.Deadline;
+import io.lacuna.artifex.utils.DeadlineExceededException;
 import io.lacuna.artifex.utils.EdgeList;
+import io.lacuna.artifex.utils.PointIndex;
+import io.lacuna.artifex.utils.Scanline;
 import io.lacuna.artifex.utils.regions.Clip;
+import io.lacuna.artifex.utils.regions.Expression.FillRule;
 import io.lacuna.artifex.utils.regions.Hulls;
 import io.lacuna.artifex.utils.regions.Monotonic;
 import io.lacuna.artifex.utils.regions.Triangles;
@@ -10,7 +16,9 @@ import io.lacuna.bifurcan.LinearList;
 import io.lacuna.bifurcan.Lists;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.concurrent.Executor;
 
 /**
  * @author ztellman
@@ -64,6 +72,37 @@ public class Region2 {
     return test(p).inside;
   }
 
+  /**
+   * Sets {@code out[i]} to whether the point {@code (xs[i], ys[i])} is contained by the region, with the same results as
+   * {@link #contains(Vec2)}.  Rather than testing each point against every curve, the points are sorted by their
+   * y-coordinate and swept alongside the curves, so this is much faster than testing each point separately.
+   */
+  public void contains(double[] xs, double[] ys, boolean[] out) {
+    new Scanline(this).contains(xs, ys, out);
+  }
+
+  /**
+   * Same as {@link #contains(double[], double[], boolean[])}, but decides whether each point is contained using the
+   * winding numbers of the rings around it, so that the region's rings may overlap.  Points which lie on an edge are
+   * always contained.
+   */
+  public void contains(double[] xs, double[] ys, boolean[] out, FillRule rule) {
+    int[] windings = new int[xs.length];
+    new Scanline(this).windings(xs, ys, windings);
+    for (int i = 0; i < windings.length; i++) {
+      int w = windings[i];
+      out[i] = w == Crossings.EDGE || (rule == FillRule.EVEN_ODD ? (w & 1) != 0 : w != 0);
+    }
+  }
+
+  /**
+   * @return an index which tests points against this region in logarithmic time, and should be retained when testing
+   * many points against the same region
+   */
+  public PointIndex index() {
+    return new PointIndex(this);
+  }
+
   /// transforms and set operations
 
   public Region2 transform(Matrix3 m) {
@@ -82,4 +121,56 @@ public class Region2 {
     return Clip.difference(this, region);
   }
 
+  /**
+   * Same as {@link #intersection(Region2)}, but periodically checks {@code deadline}.
+   *
+   * @throws DeadlineExceededException if the deadline passes before the operation completes
+   */
+  public Region2 intersection(Region2 region, Deadline deadline) {
+    return Clip.intersection(this, region, deadline);
+  }
+
+  /**
+   * Same as {@link #union(Region2)}, but periodically checks {@code deadline}.
+   *
+   * @throws DeadlineExceededException if the deadline passes before the operation completes
+   */
+  public Region2 union(Region2 region, Deadline deadline) {
+    return Clip.union(this, region, deadline);
+  }
+
+  /**
+   * Same as {@link #difference(Region2)}, but periodically checks {@code deadline}.
+   *
+   * @throws DeadlineExceededException if the deadline passes before the operation completes
+   */
+  public Region2 difference(Region2 region, Deadline deadline) {
+    return Clip.difference(this, region, deadline);
+  }
+
+  /**
+   * Returns the union of every region.  This is equivalent to repeatedly calling {@link #union(Region2)}, but splits
+   * every region against the others in a single sweep, and assembles the result once.
+   */
+  public static Region2 unionAll(Iterable<Region2> regions) {
+    return Clip.union(LinearList.from(regions).toArray(Region2[]::new));
+  }
+
+  /**
+   * Returns the intersection of every region.  This is equivalent to repeatedly calling {@link #intersection(Region2)},
+   * but splits every region against the others in a single sweep, and assembles the result once.
+   */
+  public static Region2 intersectAll(Iterable<Region2> regions) {
+    return Clip.intersection(LinearList.from(regions).toArray(Region2[]::new));
+  }
+
+  /**
+   * Returns the union of every region.  Nearby regions are unioned together, and the results merged pairwise in a
+   * balanced tree, with independent merges run in parallel on {@code executor}.  If the executor is {@code null}, the
+   * union is computed on the calling thread.
+   */
+  public static Region2 cascadedUnion(Collection<Region2> regions, Executor executor) {
+    return Clip.cascadedUnion(regions.toArray(new Region2[0]), executor);
+  }
+
 }
@@ -1,11 +1,10 @@
 package io.lacuna.artifex;
 
-import io.lacuna.artifex.utils.Intersections;
+import io.lacuna.artifex.utils.Crossings;
 import io.lacuna.bifurcan.LinearList;
 import io.lacuna.bifurcan.Lists;
 
 import java.util.Arrays;
-import java.util.Comparator;
 
 import static io.lacuna.artifex.Vec.vec;
 import static io.lacuna.artifex.utils.Intersections.*;
@@ -126,49 +125,19 @@ public class Ring2 {
       return Result.OUTSIDE;
     }
 
-    Line2 ray = Line2.line(p, vec(bounds.ux + 1, p.y));
-    int count = 0;
-
     // since our curves have been split at inflection points, there can only
     // be a single ray/curve intersection unless the curve is collinear
+    double limit = bounds.ux + 1;
+    int count = 0;
     for (Curve2 c : curves) {
-      Box2 b = c.bounds();
-      boolean flat = b.height() == 0;
-
-      //System.out.println(p + " " + b + " " + c);
-
-      // it's to our right
-      if (p.x < b.lx) {
-        // check if we intersect within [bottom, top)
-        if (p.y >= b.ly && p.y < b.uy) {
-          //System.out.println("right, incrementing");
-          count++;
-        }
-
-        // we're inside the bounding box
-      } else if (b.expand(vec(SPATIAL_EPSILON, 0)).contains(p)) {
-        Vec2 i = Arrays.stream(lineCurve(ray, c))
-          .map(v -> v.map(n -> Intersections.round(n, Intersections.PARAMETRIC_EPSILON)))
-          .filter(PARAMETRIC_BOUNDS::contains)
-          .min(Comparator.comparingDouble(v -> v.x))
-          .orElse(null);
-
-        if (i != null) {
-          //System.out.println(i);
-          if (i.x == 0) {
-            return new Result(c);
-          } else if (!flat && p.y < b.uy) {
-            //System.out.println("intersected, incrementing");
-            count++;
-          }
-        } else {
-          //System.out.println("no intersection");
-        }
+      int crossing = Crossings.crossing(c, p.x, p.y, limit);
+      if (crossing == Crossings.EDGE) {
+        return new Result(c);
+      } else if (crossing != 0) {
+        count++;
       }
     }
 
-    //System.out.println(count);
-
     return count % 2 == 1 ? Result.INSIDE : Result.OUTSIDE;
   }
 
@@ -0,0 +1,126 @@
+package io.lacuna.artifex.utils;
+
+import java.util.Arrays;
+
+/**
+ * Solves the assignment problem using the Hungarian algorithm: given a matrix of costs, pairs each row with a distinct
+ * column such that the aggregate cost is minimized.  This runs in {@code O(n^2 * m)} time for an {@code n x m} matrix,
+ * where {@code n <= m}.
+ *
+ * @author ztellman
+ */
+public class Assignment {
+
+  /**
+   * @param costs a rectangular matrix of costs, where an infinite cost means the row and column cannot be paired
+   * @return the column assigned to each row, or {@code -1} if the row is unassigned.  As many rows as possible are
+   * assigned, and among those assignments the one with the lowest aggregate cost is chosen.
+   */
+  public static int[] solve(double[][] costs) {
+    int n = costs.length;
+    int m = n == 0 ? 0 : costs[0].length;
+
+    // infinite costs are replaced with a cost larger than all the finite costs combined, so that they're only used when
+    // there's no alternative, and then discarded
+    double sum = 0;
+    for (double[] row : costs) {
+      for (double c : row) {
+        if (c != Double.POSITIVE_INFINITY) {
+          sum += Math.abs(c);
+        }
+      }
+    }
+    double infinity = (sum + 1) * (Math.min(n, m) + 1);
+
+    int[] result;
+    if (n <= m) {
+      result = solve(costs, n, m, false, infinity);
+    } else {
+      int[] transposed = solve(costs, m, n, true, infinity);
+      result = new int[n];
+      Arrays.fill(result, -1);
+      for (int j = 0; j < m; j++) {
+        if (transposed[j] >= 0) {
+          result[transposed[j]] = j;
+        }
+      }
+    }
+
+    for (int i = 0; i < n; i++) {
+      if (result[i] >= 0 && costs[i][result[i]] == Double.POSITIVE_INFINITY) {
+        result[i] = -1;
+      }
+    }
+
+    return result;
+  }
+
+  private static double cost(double[][] costs, int i, int j, boolean transpose, double infinity) {
+    double c = transpose ? costs[j][i] : costs[i][j];
+    return c == Double.POSITIVE_INFINITY ? infinity : c;
+  }
+
+  /**
+   * Assigns each of {@code n} rows to one of {@code m} columns, using row and column potentials so that each row is
+   * added via a single shortest augmenting path.
+   */
+  private static int[] solve(double[][] costs, int n, int m, boolean transpose, double infinity) {
+    // everything is 1-indexed, with column 0 acting as the root of each augmenting path
+    double[] u = new double[n + 1], v = new double[m + 1], minSlack = new double[m + 1];
+    int[] rowOf = new int[m + 1], prevColumn = new int[m + 1];
+    boolean[] used = new boolean[m + 1];
+
+    for (int i = 1; i <= n; i++) {
+      rowOf[0] = i;
+      int column = 0;
+      Arrays.fill(minSlack, Double.POSITIVE_INFINITY);
+      Arrays.fill(used, false);
+
+      // grow the tree of tight edges until we reach an unassigned column
+      do {
+        used[column] = true;
+        int row = rowOf[column], next = 0;
+        double delta = Double.POSITIVE_INFINITY;
+        for (int j = 1; j <= m; j++) {
+          if (!used[j]) {
+            double slack = cost(costs, row - 1, j - 1, transpose, infinity) - u[row] - v[j];
+            if (slack < minSlack[j]) {
+              minSlack[j] = slack;
+              prevColumn[j] = column;
+            }
+            if (minSlack[j] < delta) {
+              delta = minSlack[j];
+              next = j;
+            }
+          }
+        }
+
+        for (int j = 0; j <= m; j++) {
+          if (used[j]) {
+            u[rowOf[j]] += delta;
+            v[j] -= delta;
+          } else {
+            minSlack[j] -= delta;
+          }
+        }
+        column = next;
+      } while (rowOf[column] != 0);
+
+      // flip the assignments along the augmenting path
+      do {
+        int prev = prevColumn[column];
+        rowOf[column] = rowOf[prev];
+        column = prev;
+      } while (column != 0);
+    }
+
+    int[] result = new int[n];
+    Arrays.fill(result, -1);
+    for (int j = 1; j <= m; j++) {
+      if (rowOf[j] != 0) {
+        result[rowOf[j] - 1] = j - 1;
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,225 @@
+package io.lacuna.artifex.utils;
+
+import io.lacuna.artifex.Bezier2.CubicBezier2;
+import io.lacuna.artifex.Bezier2.QuadraticBezier2;
+import io.lacuna.artifex.Box2;
+import io.lacuna.artifex.Curve2;
+import io.lacuna.artifex.Line2;
+import io.lacuna.artifex.Vec2;
+
+import static io.lacuna.artifex.Vec.vec;
+import static io.lacuna.artifex.utils.Intersections.*;
+
+/**
+ * Crossing tests for a ray cast from a point in the +x direction.  Since the ray is horizontal, we only need to solve
+ * for where the curve's y-coordinate equals the point's, and then compare the x-coordinate at that parameter, rather
+ * than doing a general line/curve intersection.
+ * <p>
+ * This assumes the curves are monotonic in y, as they are within a {@link io.lacuna.artifex.Ring2}, and only falls
+ * back to {@link Intersections#lineCurve(Line2, Curve2)} when that isn't the case.  Otherwise, nothing is allocated.
+ *
+ * @author ztellman
+ */
+public class Crossings {
+
+  /**
+   * Returned by {@link #crossing(Curve2, double, double, double)} when the point lies on the curve.
+   */
+  public static final int EDGE = Integer.MIN_VALUE;
+
+  private static final int MAX_ITERATIONS = 64;
+
+  /**
+   * Tests the ray from {@code (x, y)} to {@code (limit, y)} against {@code c}.  Crossings are counted within the half-open
+   * interval [bottom, top) of the curve, so that a ray passing through a vertex shared by two curves is only counted
+   * once.  Curves with no height are never crossed.
+   *
+   * @param limit the x-coordinate where the ray ends, which must lie to the right of the curve
+   * @return 1 if the ray crosses a curve heading upwards, -1 if it crosses one heading downwards, 0 if it doesn't cross
+   * the curve, or {@link #EDGE} if the point lies on the curve
+   */
+  public static int crossing(Curve2 c, double x, double y, double limit) {
+
+    // if the control points are above, below, or to our left, so is the curve
+    Box2 h = c.hull();
+    if (y < h.ly || y > h.uy || x > h.ux + SPATIAL_EPSILON) {
+      return 0;
+    }
+
+    Box2 b = c.bounds();
+    if (y < b.ly || y > b.uy || x > b.ux + SPATIAL_EPSILON) {
+      return 0;
+    }
+
+    boolean flat = b.ly == b.uy;
+
+    // it's to our right, check if we intersect within [bottom, top)
+    if (x < b.lx) {
+      return y < b.uy ? direction(c) : 0;
+    }
+
+    if (flat) {
+      return EDGE;
+    }
+
+    double t = root(c, y);
+    if (Double.isNaN(t)) {
+      return fallback(c, x, y, limit);
+    }
+
+    // an offset within PARAMETRIC_EPSILON of the ray's length is treated as the ray's origin
+    double dx = x(c, t) - x;
+    if (Math.abs(dx) < PARAMETRIC_EPSILON * (limit - x)) {
+      return EDGE;
+    } else if (dx > 0 && y < b.uy) {
+      return direction(c);
+    } else {
+      return 0;
+    }
+  }
+
+  /// polynomials
+
+  private static int direction(Curve2 c) {
+    double y0, y1;
+    if (c instanceof Line2) {
+      Line2 l = (Line2) c;
+      y0 = l.ay;
+      y1 = l.by;
+    } else if (c instanceof QuadraticBezier2) {
+      QuadraticBezier2 q = (QuadraticBezier2) c;
+      y0 = q.p0.y;
+      y1 = q.p2.y;
+    } else {
+      CubicBezier2 q = (CubicBezier2) c;
+      y0 = q.p0.y;
+      y1 = q.p3.y;
+    }
+    return y1 > y0 ? 1 : -1;
+  }
+
+  static double quadratic(double p0, double p1, double p2, double t) {
+    double mt = 1 - t;
+    return (mt * mt * p0) + (2 * mt * t * p1) + (t * t * p2);
+  }
+
+  static double quadraticDerivative(double p0, double p1, double p2, double t) {
+    return 2 * (((1 - t) * (p1 - p0)) + (t * (p2 - p1)));
+  }
+
+  static double cubic(double p0, double p1, double p2, double p3, double t) {
+    double mt = 1 - t;
+    return (mt * mt * mt * p0) + (3 * mt * mt * t * p1) + (3 * mt * t * t * p2) + (t * t * t * p3);
+  }
+
+  static double cubicDerivative(double p0, double p1, double p2, double p3, double t) {
+    double mt = 1 - t;
+    return 3 * ((mt * mt * (p1 - p0)) + (2 * mt * t * (p2 - p1)) + (t * t * (p3 - p2)));
+  }
+
+  private static double x(Curve2 c, double t) {
+    if (c instanceof Line2) {
+      Line2 l = (Line2) c;
+      return Scalars.lerp(l.ax, l.bx, t);
+    } else if (c instanceof QuadraticBezier2) {
+      QuadraticBezier2 q = (QuadraticBezier2) c;
+      return quadratic(q.p0.x, q.p1.x, q.p2.x, t);
+    } else {
+      CubicBezier2 q = (CubicBezier2) c;
+      return cubic(q.p0.x, q.p1.x, q.p2.x, q.p3.x, t);
+    }
+  }
+
+  /**
+   * @return the parameter where the curve's y-coordinate equals {@code y}, or NaN if the endpoints don't bracket it
+   */
+  private static double root(Curve2 c, double y) {
+    if (c instanceof Line2) {
+      Line2 l = (Line2) c;
+      if ((l.ay - y) * (l.by - y) > 0) {
+        return Double.NaN;
+      }
+      return Scalars.normalize(l.ay, l.by, y);
+
+    } else if (c instanceof QuadraticBezier2) {
+      QuadraticBezier2 q = (QuadraticBezier2) c;
+      return bracket(q.p0.y, q.p1.y, q.p2.y, Double.NaN, y);
+
+    } else {
+      CubicBezier2 q = (CubicBezier2) c;
+      return bracket(q.p0.y, q.p1.y, q.p2.y, q.p3.y, y);
+    }
+  }
+
+  /**
+   * Finds the root of {@code f(t) - y} within [0, 1] using Newton's method, falling back to bisection whenever a step
+   * would leave the bracketing interval.  If {@code p3} is NaN, the curve is treated as quadratic.
+   */
+  static double bracket(double p0, double p1, double p2, double p3, double y) {
+    boolean quadratic = Double.isNaN(p3);
+    double f0 = p0 - y;
+    double f1 = (quadratic ? p2 : p3) - y;
+
+    if (f0 == 0) {
+      return 0;
+    } else if (f1 == 0) {
+      return 1;
+    } else if ((f0 < 0) == (f1 < 0)) {
+      return Double.NaN;
+    }
+
+    // orient the interval so that f(lo) < 0 < f(hi)
+    double lo = f0 < 0 ? 0 : 1;
+    double hi = 1 - lo;
+    double t = Scalars.normalize(f0, f1, 0);
+
+    for (int i = 0; i < MAX_ITERATIONS; i++) {
+      double f = (quadratic ? quadratic(p0, p1, p2, t) : cubic(p0, p1, p2, p3, t)) - y;
+      if (f == 0) {
+        return t;
+      } else if (f < 0) {
+        lo = t;
+      } else {
+        hi = t;
+      }
+
+      double df = quadratic ? quadraticDerivative(p0, p1, p2, t) : cubicDerivative(p0, p1, p2, p3, t);
+      double next = t - (f / df);
+      if (!(next > Math.min(lo, hi) && next < Math.max(lo, hi))) {
+        next = (lo + hi) / 2;
+      }
+
+      if (Math.abs(next - t) < Scalars.MACHINE_EPSILON) {
+        return next;
+      }
+      t = next;
+    }
+
+    return t;
+  }
+
+  /// fallback
+
+  /**
+   * The general case, for curves which aren't monotonic in y between their endpoints.
+   */
+  private static int fallback(Curve2 c, double x, double y, double limit) {
+    Line2 ray = Line2.line(vec(x, y), vec(limit, y));
+
+    double s = Double.POSITIVE_INFINITY;
+    for (Vec2 i : lineCurve(ray, c)) {
+      Vec2 v = i.map(n -> round(n, PARAMETRIC_EPSILON));
+      if (PARAMETRIC_BOUNDS.contains(v)) {
+        s = Math.min(s, v.x);
+      }
+    }
+
+    if (s == 0) {
+      return EDGE;
+    } else if (s < Double.POSITIVE_INFINITY && y < c.bounds().uy) {
+      return direction(c);
+    } else {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package io.lacuna.artifex.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A limit on how long an operation may run, which may also be cancelled from another thread.  Long-running operations
+ * periodically {@link #check(String)} the deadline, and throw a {@link DeadlineExceededException} once it has passed,
+ * so an operation will overrun its deadline by at most the time between checks.
+ * <p>
+ * This is safe to share across threads, and a single deadline may be shared by several operations.
+ *
+ * @author ztellman
+ */
+public class Deadline {
+
+  /**
+   * A deadline which never passes, and cannot be cancelled.
+   */
+  public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+  private final long start, duration;
+  private volatile boolean cancelled = false;
+
+  private Deadline(long duration) {
+    this.start = System.nanoTime();
+    this.duration = duration;
+  }
+
+  /**
+   * @return a deadline which passes once {@code duration} has elapsed, or when it's cancelled
+   */
+  public static Deadline after(long duration, TimeUnit unit) {
+    return new Deadline(Math.max(0, unit.toNanos(duration)));
+  }
+
+  /**
+   * @return a deadline which only passes when it's cancelled
+   */
+  public static Deadline cancellable() {
+    return new Deadline(Long.MAX_VALUE);
+  }
+
+  /**
+   * Causes the deadline to pass immediately.
+   */
+  public void cancel() {
+    if (this == NONE) {
+      throw new UnsupportedOperationException("Deadline.NONE cannot be cancelled");
+    }
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * @return true if the deadline has passed, or been cancelled
+   */
+  public boolean isExpired() {
+    return this != NONE && (cancelled || elapsed() >= duration);
+  }
+
+  /**
+   * @return the nanoseconds elapsed since the deadline was created
+   */
+  public long elapsed() {
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * @param stage a description of the work being done
+   * @throws DeadlineExceededException if the deadline has passed
+   */
+  public void check(String stage) {
+    if (isExpired()) {
+      throw new DeadlineExceededException(stage, null, elapsed(), cancelled);
+    }
+  }
+
+  /**
+   * @param stage a description of the work being done
+   * @param progress a description of the progress made within {@code stage}, only invoked if the deadline has passed
+   * @throws DeadlineExceededException if the deadline has passed
+   */
+  public void check(String stage, Supplier<String> progress) {
+    if (isExpired()) {
+      throw new DeadlineExceededException(stage, progress.get(), elapsed(), cancelled);
+    }
+  }
+}
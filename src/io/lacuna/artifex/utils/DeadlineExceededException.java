@@ -0,0 +1,35 @@
+package io.lacuna.artifex.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thrown when an operation's {@link Deadline} passes before it completes, describing how far the operation got.
+ *
+ * @author ztellman
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public final String stage, progress;
+  public final boolean cancelled;
+  private final long elapsed;
+
+  public DeadlineExceededException(String stage, String progress, long elapsedNanos, boolean cancelled) {
+    super((cancelled ? "cancelled" : "deadline exceeded")
+      + " during " + stage
+      + " after " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms"
+      + (progress == null ? "" : ": " + progress));
+    this.stage = stage;
+    this.progress = progress;
+    this.cancelled = cancelled;
+    this.elapsed = elapsedNanos;
+  }
+
+  /**
+   * @return the time elapsed between the deadline's creation and this exception
+   */
+  public long elapsed(TimeUnit unit) {
+    return unit.convert(elapsed, TimeUnit.NANOSECONDS);
+  }
+}
@@ -1,5 +1,7 @@
 package io.lacuna.artifex.utils;
 
+import java.util.Arrays;
+
 import static io.lacuna.artifex.utils.Scalars.EPSILON;
 import static io.lacuna.artifex.utils.Scalars.MACHINE_EPSILON;
 import static java.lang.StrictMath.*;
@@ -194,4 +196,149 @@ public class Equations {
     return trim(acc, solveCubic(a, b, c, d, acc));
   }
 
+  private static double quartic(double b, double c, double d, double e, double x) {
+    return (((((x + b) * x) + c) * x) + d) * x + e;
+  }
+
+  private static double quarticDerivative(double b, double c, double d, double x) {
+    return ((((4 * x) + (3 * b)) * x) + (2 * c)) * x + d;
+  }
+
+  /**
+   * Finds the root of the monic quartic within [lo, hi], given that it changes sign exactly once in that range, using
+   * Newton's method with bisection as a fallback.
+   */
+  private static double bracket(double b, double c, double d, double e, double lo, double hi, double fLo) {
+    double x = (lo + hi) / 2;
+    for (int i = 0; i < 128; i++) {
+      double f = quartic(b, c, d, e, x);
+      if (f == 0) {
+        return x;
+      }
+
+      if ((f < 0) == (fLo < 0)) {
+        lo = x;
+      } else {
+        hi = x;
+      }
+
+      double df = quarticDerivative(b, c, d, x);
+      double next = x - (f / df);
+      if (!(lo < next && next < hi)) {
+        next = (lo + hi) / 2;
+      }
+
+      if (abs(next - x) <= MACHINE_EPSILON * max(1, abs(x))) {
+        return next;
+      }
+      x = next;
+    }
+    return x;
+  }
+
+  /**
+   * Adds {@code x} to the roots in {@code acc}, unless it duplicates an existing root, or there are already four.
+   */
+  private static int addRoot(double x, double[] acc, int solutions) {
+    if (solutions == 4) {
+      return solutions;
+    }
+    for (int i = 0; i < solutions; i++) {
+      if (abs(acc[i] - x) < SOLUTION_EPSILON) {
+        return solutions;
+      }
+    }
+    acc[solutions] = x;
+    return solutions + 1;
+  }
+
+  /**
+   * Rather than using Ferrari's method, which loses a great deal of precision when the resolvent cubic is nearly
+   * degenerate, this finds the critical points of the quartic, and then the single root, if any, between each of them.
+   * Critical points which lie on the x-axis are treated as double roots.
+   */
+  public static int solveQuartic(double a, double b, double c, double d, double e, double[] acc) {
+    return solveQuartic(a, b, c, d, e, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, acc);
+  }
+
+  /**
+   * The same as {@link #solveQuartic(double, double, double, double, double, double[])}, but only returns the roots
+   * within [min, max], which avoids searching for roots that will be discarded.
+   */
+  public static int solveQuartic(double a, double b, double c, double d, double e, double min, double max, double[] acc) {
+
+    double k = Scalars.normalizationFactor(a, b, c, d, e);
+    a *= k;
+    b *= k;
+    c *= k;
+    d *= k;
+    e *= k;
+
+    if (abs(a) < EPSILON) {
+      int solutions = solveCubic(b, c, d, e, acc);
+      int writeIdx = 0;
+      for (int readIdx = 0; readIdx < solutions; readIdx++) {
+        double x = acc[readIdx];
+        if (min <= x && x <= max) {
+          acc[writeIdx++] = x;
+        }
+      }
+      return writeIdx;
+    }
+
+    b /= a;
+    c /= a;
+    d /= a;
+    e /= a;
+
+    // every root lies within the Cauchy bound
+    double bound = 1 + max(max(abs(b), abs(c)), max(abs(d), abs(e)));
+    min = max(min, -bound);
+    max = min(max, bound);
+
+    // there is always at least one critical point, and the quartic is monotonic between them
+    int criticalPoints = solveCubic(4, 3 * b, 2 * c, d, acc);
+    Arrays.sort(acc, 0, criticalPoints);
+    double
+      c0 = criticalPoints > 0 ? acc[0] : max,
+      c1 = criticalPoints > 1 ? acc[1] : max,
+      c2 = criticalPoints > 2 ? acc[2] : max;
+
+    int solutions = 0;
+    double lo = min, fLo = quartic(b, c, d, e, lo);
+    if (fLo == 0) {
+      solutions = addRoot(lo, acc, solutions);
+    }
+
+    for (int i = 0; i <= criticalPoints && lo < max; i++) {
+      double hi = i == 0 ? c0 : i == 1 ? c1 : i == 2 ? c2 : max;
+      if (hi <= lo) {
+        continue;
+      }
+
+      boolean isCritical = hi < max;
+      hi = min(hi, max);
+      double fHi = quartic(b, c, d, e, hi);
+
+      // the quartic is monotonic within [lo, hi], so if it changes sign, a nearly flat critical point at `hi` is the
+      // same root
+      boolean bracketed = (fLo < 0) != (fHi < 0) && fLo != 0 && fHi != 0;
+      if (bracketed) {
+        solutions = addRoot(bracket(b, c, d, e, lo, hi, fLo), acc, solutions);
+      } else if (isCritical ? abs(fHi) < SOLUTION_EPSILON : fHi == 0) {
+        solutions = addRoot(hi, acc, solutions);
+      }
+
+      lo = hi;
+      fLo = fHi;
+    }
+
+    return solutions;
+  }
+
+  public static double[] solveQuartic(double a, double b, double c, double d, double e) {
+    double[] acc = new double[4];
+    return trim(acc, solveQuartic(a, b, c, d, e, acc));
+  }
+
 }
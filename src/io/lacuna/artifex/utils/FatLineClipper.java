@@ -0,0 +1,851 @@
+package io.lacuna.artifex.utils;
+
+import io.lacuna.artifex.Bezier2.CubicBezier2;
+import io.lacuna.artifex.Bezier2.QuadraticBezier2;
+import io.lacuna.artifex.Curve2;
+import io.lacuna.artifex.Vec2;
+
+import java.util.Arrays;
+
+import static io.lacuna.artifex.utils.Intersections.*;
+import static java.lang.Math.ceil;
+import static java.lang.Math.floor;
+import static java.lang.Math.sqrt;
+
+/**
+ * A primitive implementation of {@link Intersections#fatLineCurveCurve(Curve2, Curve2)}, which operates directly on
+ * control points held in scratch arrays, and keeps its work queue as a stack of parametric ranges.  Other than growing
+ * its buffers, and the one-time collinearity check, this does no allocation, so instances are meant to be reused across
+ * many calls on the same thread.
+ *
+ * @author ztellman
+ */
+public class FatLineClipper {
+
+  private static final ThreadLocal<FatLineClipper> CLIPPERS = ThreadLocal.withInitial(FatLineClipper::new);
+
+  // the number of consecutive splits without any useful clipping, after which a work item is only subdivided
+  private static final int MAX_STALLS = 3;
+
+  // the total number of iterations, after which any remaining work items are resolved via Newton's method
+  private static final int MAX_ITERATIONS = 1 << 11;
+
+  private static final int NEWTON_ITERATIONS = 8;
+
+  private static final int ENTRY_SIZE = 5;
+
+  // control points for each curve, as [x0, y0, x1, y1, ...]
+  private final double[]
+    pa = new double[8],
+    pb = new double[8],
+    ra = new double[8],
+    rb = new double[8];
+  private int na, nb;
+
+  // where the current call's intersections begin within the accumulator
+  private int resultOffset;
+
+  // whether the current call has already checked for coincident curves
+  private boolean collinearCheck;
+
+  // the inflection points bounding each curve's initial ranges, as [0, ..., 1]
+  private final double[]
+    ia = new double[6],
+    ib = new double[6];
+
+  // the clipped hull, as [x0, y0, x1, y1, ...]
+  private final double[] hull = new double[10];
+  private int hullSize;
+
+  // each entry is [aLo, aHi, bLo, bHi, stalls]
+  private double[] stack = new double[ENTRY_SIZE * 16];
+  private int depth;
+
+  // statistics for the current call, which are only reported if IntersectionStats is enabled
+  private int peakDepth, splitCount;
+
+  // the ranges produced by splitting the current work item, as [aLo0, aHi0, aLo1, aHi1, bLo0, bHi0, bLo1, bHi1]
+  private final double[] splits = new double[8];
+
+  // the current work item
+  private double aLo, aHi, bLo, bHi;
+  private double aLineLo, aLineHi, bLineLo, bLineHi;
+  private int stalls;
+
+  // scratch outputs
+  private double lo, hi;
+
+  /**
+   * @return an instance which is local to the current thread
+   */
+  public static FatLineClipper get() {
+    return CLIPPERS.get();
+  }
+
+  /**
+   * Writes the (s, t) pairs where {@code a} and {@code b} intersect into {@code acc}, returning the number of pairs
+   * written.  Both curves must be quadratic or cubic.
+   * <p>
+   * Clipping converges quickly for transversal intersections, but near-tangent curves can leave it removing almost
+   * nothing, which just splits the work item four ways.  If that happens too many times in a row, the item is
+   * subdivided instead, which is cheaper per step.  If the total work exceeds a fixed budget, whatever remains is
+   * refined using Newton's method, which may miss some intersections but will not report false ones.
+   */
+  public int intersections(Curve2 a, Curve2 b, DoubleAccumulator acc) {
+    resultOffset = acc.size();
+
+    // shared edges are common, so check for overlapping curves before doing any clipping
+    int count = coincidence(a, b, acc);
+    if (count > 0) {
+      return count;
+    }
+
+    int aRanges = ranges(a.inflections(), ia);
+    int bRanges = ranges(b.inflections(), ib);
+    for (int i = 0; i < aRanges; i++) {
+      for (int j = 0; j < bRanges; j++) {
+        pushQuantized(ia[i], ia[i + 1], ib[j], ib[j + 1]);
+      }
+    }
+
+    int iterations = 0;
+    while (depth > 0) {
+
+      // if it's taking a while, check once (and only once) if they're collinear
+      if (iterations > 32 && !collinearCheck) {
+        collinearCheck = true;
+        Vec2[] is = coincidentIntersection(a, b);
+        if (is.length > 0) {
+          acc.pop(acc.size() - resultOffset);
+          for (Vec2 i : is) {
+            acc.add(i.x, i.y);
+          }
+          record(iterations, true, true);
+          return is.length;
+        }
+      }
+
+      pop();
+      updateA(aLo, aHi);
+      updateB(bLo, bHi);
+
+      if (iterations >= MAX_ITERATIONS) {
+        refine(acc);
+        continue;
+      }
+
+      if (stalls >= MAX_STALLS) {
+        iterations++;
+        subdivide(acc);
+        continue;
+      }
+
+      boolean converging = false;
+      for (; ; ) {
+        iterations++;
+
+        if (!intersects()) {
+          break;
+        }
+
+        if (isFlat(aLo, aHi, aLineLo, aLineHi) && isFlat(bLo, bHi, bLineLo, bLineHi)) {
+          addIntersection(acc);
+          break;
+        }
+
+        double aSize = aHi - aLo;
+        double bSize = bHi - bLo;
+
+        // use a to clip b
+        if (!clip(rb, nb, ra, na, aLineLo, aLineHi)) {
+          break;
+        }
+        clipped(bLo, bHi);
+        quantize(lo, hi);
+        updateB(lo, hi);
+
+        // use b to clip a
+        if (!clip(ra, na, rb, nb, bLineLo, bLineHi)) {
+          break;
+        }
+        clipped(aLo, aHi);
+        quantize(lo, hi);
+        updateA(lo, hi);
+
+        double
+          ka = (aHi - aLo) / aSize,
+          kb = (bHi - bLo) / bSize;
+        if (max(ka, kb) > 0.8) {
+          split(converging ? 0 : stalls + 1);
+          break;
+        }
+        converging = true;
+      }
+    }
+
+    record(iterations, collinearCheck, false);
+    return normalize(acc, resultOffset);
+  }
+
+  /**
+   * If {@code a} and {@code b} coincide along some interval, writes the (s, t) pairs at either end of that interval into
+   * {@code acc} and returns 2, otherwise returns 0.  Both curves must be quadratic or cubic.
+   * <p>
+   * Curves with identical control points are resolved immediately, and otherwise the more expensive check is only made
+   * if two distinct endpoints may lie on the other curve.
+   */
+  public int coincidence(Curve2 a, Curve2 b, DoubleAccumulator acc) {
+    na = load(a, pa);
+    nb = load(b, pb);
+    depth = peakDepth = splitCount = 0;
+    collinearCheck = false;
+
+    boolean identical = isIdentical(false);
+    if (identical || isIdentical(true)) {
+      boolean reversed = !identical;
+      acc.add(0, reversed ? 1 : 0);
+      acc.add(1, reversed ? 0 : 1);
+      record(0, false, true);
+      return 2;
+    }
+
+    if (mayCoincide()) {
+      collinearCheck = true;
+      Vec2[] is = coincidentIntersection(a, b);
+      if (is.length > 0) {
+        for (Vec2 i : is) {
+          acc.add(i.x, i.y);
+        }
+        record(0, true, true);
+        return is.length;
+      }
+    }
+
+    return 0;
+  }
+
+  private void record(int iterations, boolean collinearCheck, boolean collinear) {
+    if (IntersectionStats.isEnabled()) {
+      IntersectionStats.recordClipping(
+        iterations,
+        peakDepth / ENTRY_SIZE,
+        splitCount,
+        collinearCheck ? 1 : 0,
+        collinear ? 1 : 0);
+    }
+  }
+
+  /// curves
+
+  private static int load(Curve2 c, double[] ps) {
+    if (c instanceof QuadraticBezier2) {
+      QuadraticBezier2 q = (QuadraticBezier2) c;
+      ps[0] = q.p0.x;
+      ps[1] = q.p0.y;
+      ps[2] = q.p1.x;
+      ps[3] = q.p1.y;
+      ps[4] = q.p2.x;
+      ps[5] = q.p2.y;
+      return 3;
+
+    } else if (c instanceof CubicBezier2) {
+      CubicBezier2 q = (CubicBezier2) c;
+      ps[0] = q.p0.x;
+      ps[1] = q.p0.y;
+      ps[2] = q.p1.x;
+      ps[3] = q.p1.y;
+      ps[4] = q.p2.x;
+      ps[5] = q.p2.y;
+      ps[6] = q.p3.x;
+      ps[7] = q.p3.y;
+      return 4;
+
+    } else {
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * @return true if both curves have the same control points, with {@code b}'s in reverse order if {@code reversed} is
+   * true
+   */
+  private boolean isIdentical(boolean reversed) {
+    if (na != nb) {
+      return false;
+    }
+
+    for (int i = 0; i < na; i++) {
+      int j = reversed ? na - 1 - i : i;
+      if (!Scalars.equals(pa[i * 2], pb[j * 2], SPATIAL_EPSILON)
+        || !Scalars.equals(pa[i * 2 + 1], pb[j * 2 + 1], SPATIAL_EPSILON)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * If two curves overlap along some interval, each end of that interval is an endpoint of one curve which lies on the
+   * other.  This checks whether two distinct endpoints fall within the bounding box and fat line of the other curve's
+   * control points, which can have false positives, but rejects almost every pair which merely crosses or shares a
+   * vertex without ever calling {@link Curve2#nearestPoint(Vec2)}.
+   */
+  private boolean mayCoincide() {
+    boolean found = false;
+    double x0 = 0, y0 = 0;
+
+    for (int i = 0; i < 4; i++) {
+      double[] ps = i < 2 ? pa : pb;
+      int n = i < 2 ? na : nb;
+      int idx = (i % 2 == 0) ? 0 : (n - 1) * 2;
+      double x = ps[idx], y = ps[idx + 1];
+
+      if (i < 2 ? !isWithinHull(x, y, pb, nb) : !isWithinHull(x, y, pa, na)) {
+        continue;
+      }
+
+      if (!found) {
+        found = true;
+        x0 = x;
+        y0 = y;
+      } else if (!Scalars.equals(x, x0, SPATIAL_EPSILON) || !Scalars.equals(y, y0, SPATIAL_EPSILON)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @return true if the point lies within {@code SPATIAL_EPSILON} of both the bounding box of the control points, and
+   * the fat line around them
+   */
+  private static boolean isWithinHull(double x, double y, double[] ps, int n) {
+    double lx = ps[0], ux = lx, ly = ps[1], uy = ly;
+    for (int i = 1; i < n; i++) {
+      lx = min(lx, ps[i * 2]);
+      ux = max(ux, ps[i * 2]);
+      ly = min(ly, ps[i * 2 + 1]);
+      uy = max(uy, ps[i * 2 + 1]);
+    }
+
+    if (x < lx - SPATIAL_EPSILON || x > ux + SPATIAL_EPSILON || y < ly - SPATIAL_EPSILON || y > uy + SPATIAL_EPSILON) {
+      return false;
+    }
+
+    // if the curve is closed, there's no line to measure against
+    double
+      nx = ps[1] - ps[(n - 1) * 2 + 1],
+      ny = ps[(n - 1) * 2] - ps[0],
+      len = sqrt((nx * nx) + (ny * ny));
+    if (len == 0) {
+      return true;
+    }
+
+    double dMin = 0, dMax = 0;
+    for (int i = 1; i < n - 1; i++) {
+      double d = ((ps[i * 2] - ps[0]) * nx) + ((ps[i * 2 + 1] - ps[1]) * ny);
+      dMin = min(dMin, d);
+      dMax = max(dMax, d);
+    }
+
+    double d = ((x - ps[0]) * nx) + ((y - ps[1]) * ny);
+    return d >= dMin - (SPATIAL_EPSILON * len) && d <= dMax + (SPATIAL_EPSILON * len);
+  }
+
+  /**
+   * Writes [0, ...inflections, 1] into {@code out}, returning the number of ranges described.
+   */
+  private static int ranges(double[] inflections, double[] out) {
+    int len = inflections.length;
+    out[0] = 0;
+    System.arraycopy(inflections, 0, out, 1, len);
+    Arrays.sort(out, 1, len + 1);
+    out[len + 1] = 1;
+    return len + 1;
+  }
+
+  /**
+   * Evaluates the blossom of the curve at (t0, t1, t2) for a single coordinate, where {@code t2} is ignored for
+   * quadratic curves.
+   */
+  private static double blossom(double[] ps, int n, int offset, double t0, double t1, double t2) {
+    double
+      a = ps[offset],
+      b = ps[offset + 2],
+      c = ps[offset + 4];
+
+    if (n == 3) {
+      return Scalars.lerp(Scalars.lerp(a, b, t0), Scalars.lerp(b, c, t0), t1);
+    } else {
+      double d = ps[offset + 6];
+      double
+        e = Scalars.lerp(a, b, t0),
+        f = Scalars.lerp(b, c, t0),
+        g = Scalars.lerp(c, d, t0);
+      return Scalars.lerp(Scalars.lerp(e, f, t1), Scalars.lerp(f, g, t1), t2);
+    }
+  }
+
+  /**
+   * Writes the control points of the curve within [tLo, tHi] into {@code out}.
+   */
+  private static void range(double[] ps, int n, double tLo, double tHi, double[] out) {
+    for (int offset = 0; offset < 2; offset++) {
+      if (n == 3) {
+        out[offset] = blossom(ps, n, offset, tLo, tLo, 0);
+        out[offset + 2] = blossom(ps, n, offset, tLo, tHi, 0);
+        out[offset + 4] = blossom(ps, n, offset, tHi, tHi, 0);
+      } else {
+        out[offset] = blossom(ps, n, offset, tLo, tLo, tLo);
+        out[offset + 2] = blossom(ps, n, offset, tLo, tLo, tHi);
+        out[offset + 4] = blossom(ps, n, offset, tLo, tHi, tHi);
+        out[offset + 6] = blossom(ps, n, offset, tHi, tHi, tHi);
+      }
+    }
+  }
+
+  /**
+   * Writes the position of the curve at {@code t} into [lo, hi], as (x, y).
+   */
+  private void position(double[] ps, int n, double t) {
+    lo = blossom(ps, n, 0, t, t, t);
+    hi = blossom(ps, n, 1, t, t, t);
+  }
+
+  /**
+   * Writes the derivative of the curve at {@code t} into [lo, hi], as (x, y).
+   */
+  private void direction(double[] ps, int n, double t) {
+    if (n == 3) {
+      // the third argument is ignored for quadratics, so vary the second
+      lo = 2 * (blossom(ps, n, 0, t, 1, 0) - blossom(ps, n, 0, t, 0, 0));
+      hi = 2 * (blossom(ps, n, 1, t, 1, 0) - blossom(ps, n, 1, t, 0, 0));
+    } else {
+      lo = 3 * (blossom(ps, n, 0, t, t, 1) - blossom(ps, n, 0, t, t, 0));
+      hi = 3 * (blossom(ps, n, 1, t, t, 1) - blossom(ps, n, 1, t, t, 0));
+    }
+  }
+
+  private static double signedDistance(double px, double py, double ax, double ay, double bx, double by) {
+    double dx = bx - ax, dy = by - ay;
+    return ((px * dy) - (py * dx) + (bx * ay) - (by * ax)) / sqrt((dx * dx) + (dy * dy));
+  }
+
+  private static double signedDistance(double[] ps, int n, int idx) {
+    int last = (n - 1) * 2;
+    return signedDistance(ps[idx * 2], ps[idx * 2 + 1], ps[0], ps[1], ps[last], ps[last + 1]);
+  }
+
+  /**
+   * Writes the width of the curve's fat line into [lo, hi].
+   */
+  private void fatLine(double[] ps, int n) {
+    if (n == 3) {
+      double d = signedDistance(ps, n, 1) / 2;
+      lo = min(0, d);
+      hi = max(0, d);
+    } else {
+      double
+        d1 = signedDistance(ps, n, 1),
+        d2 = signedDistance(ps, n, 2),
+        k = d1 * d2 < 0 ? 4 / 9.0 : 3 / 4.0;
+      lo = min(0, min(d1, d2)) * k;
+      hi = max(0, max(d1, d2)) * k;
+    }
+  }
+
+  private void updateA(double tLo, double tHi) {
+    aLo = tLo;
+    aHi = tHi;
+    range(pa, na, aLo, aHi, ra);
+    fatLine(ra, na);
+    aLineLo = lo;
+    aLineHi = hi;
+  }
+
+  private void updateB(double tLo, double tHi) {
+    bLo = tLo;
+    bHi = tHi;
+    range(pb, nb, bLo, bHi, rb);
+    fatLine(rb, nb);
+    bLineLo = lo;
+    bLineHi = hi;
+  }
+
+  /// clipping
+
+  private void quantize(double tLo, double tHi) {
+    double resolution = FAT_LINE_PARAMETRIC_RESOLUTION;
+    lo = min(1 - resolution, floor(tLo / resolution) * resolution);
+    hi = max(lo + resolution, ceil(tHi / resolution) * resolution);
+  }
+
+  private static boolean isFlat(double tLo, double tHi, double lineLo, double lineHi) {
+    return (tHi - tLo) < PARAMETRIC_EPSILON || (lineHi - lineLo) <= SPATIAL_EPSILON;
+  }
+
+  private boolean intersects() {
+    double epsilon = SPATIAL_EPSILON * 10;
+    int la = (na - 1) * 2, lb = (nb - 1) * 2;
+    return min(ra[0], ra[la]) - epsilon <= max(rb[0], rb[lb])
+      && min(rb[0], rb[lb]) <= max(ra[0], ra[la]) + epsilon
+      && min(ra[1], ra[la + 1]) - epsilon <= max(rb[1], rb[lb + 1])
+      && min(rb[1], rb[lb + 1]) <= max(ra[1], ra[la + 1]) + epsilon;
+  }
+
+  /**
+   * Unlike {@link #intersects()}, this checks the bounds of the control points rather than the endpoints, so it's
+   * conservative even when the ranges aren't flat.
+   */
+  private boolean hullsIntersect() {
+    double epsilon = SPATIAL_EPSILON * 10;
+    for (int offset = 0; offset < 2; offset++) {
+      double
+        aMin = Double.POSITIVE_INFINITY,
+        aMax = Double.NEGATIVE_INFINITY,
+        bMin = Double.POSITIVE_INFINITY,
+        bMax = Double.NEGATIVE_INFINITY;
+
+      for (int i = offset; i < na * 2; i += 2) {
+        aMin = min(aMin, ra[i]);
+        aMax = max(aMax, ra[i]);
+      }
+      for (int i = offset; i < nb * 2; i += 2) {
+        bMin = min(bMin, rb[i]);
+        bMax = max(bMax, rb[i]);
+      }
+
+      if (aMin - epsilon > bMax || bMin > aMax + epsilon) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void hull(double[] subject, int n, double[] clipper, int cn) {
+    int last = (cn - 1) * 2;
+    double
+      ax = clipper[0],
+      ay = clipper[1],
+      bx = clipper[last],
+      by = clipper[last + 1];
+
+    double
+      d0 = signedDistance(subject[0], subject[1], ax, ay, bx, by),
+      d1 = signedDistance(subject[2], subject[3], ax, ay, bx, by),
+      d2 = signedDistance(subject[4], subject[5], ax, ay, bx, by);
+
+    if (n == 3) {
+      hullSize = 0;
+      hullPoint(0, d0);
+      hullPoint(1 / 2.0, d1);
+      hullPoint(1, d2);
+      hullPoint(0, d0);
+      return;
+    }
+
+    double
+      d3 = signedDistance(subject[6], subject[7], ax, ay, bx, by),
+      e1 = signedDistance(1 / 3.0, d1, 0, d0, 1, d3),
+      e2 = signedDistance(2 / 3.0, d2, 0, d0, 1, d3);
+
+    hullSize = 0;
+    hullPoint(0, d0);
+    if (e1 * e2 < 0) {
+      hullPoint(1 / 3.0, d1);
+      hullPoint(1, d3);
+      hullPoint(2 / 3.0, d2);
+    } else {
+      double k = e1 / e2;
+      if (k >= 2) {
+        hullPoint(1 / 3.0, d1);
+      } else if (k <= 0.5) {
+        hullPoint(2 / 3.0, d2);
+      } else {
+        hullPoint(1 / 3.0, d1);
+        hullPoint(2 / 3.0, d2);
+      }
+      hullPoint(1, d3);
+    }
+    hullPoint(0, d0);
+  }
+
+  private void hullPoint(double x, double y) {
+    hull[hullSize * 2] = x;
+    hull[hullSize * 2 + 1] = y;
+    hullSize++;
+  }
+
+  /**
+   * Clips the subject's hull against the clipper's fat line, writing the normalized parametric range into [lo, hi].
+   *
+   * @return false if the hull is entirely outside the fat line
+   */
+  private boolean clip(double[] subject, int n, double[] clipper, int cn, double lineLo, double lineHi) {
+    hull(subject, n, clipper, cn);
+
+    double
+      fLo = lineLo - FAT_LINE_SPATIAL_EPSILON,
+      fHi = lineHi + FAT_LINE_SPATIAL_EPSILON,
+      tLo = Double.POSITIVE_INFINITY,
+      tHi = Double.NEGATIVE_INFINITY;
+
+    for (int i = 0; i < hullSize - 1; i++) {
+      double x = hull[i * 2], y = hull[i * 2 + 1];
+      if (fLo <= y && y <= fHi) {
+        tLo = min(tLo, x);
+        tHi = max(tHi, x);
+      }
+    }
+
+    for (int j = 0; j < 2; j++) {
+      double y = j == 0 ? fLo : fHi;
+      for (int i = 0; i < hullSize - 1; i++) {
+        double
+          ax = hull[i * 2],
+          ay = hull[i * 2 + 1],
+          bx = hull[i * 2 + 2],
+          by = hull[i * 2 + 3];
+
+        if (min(ay, by) <= y && y <= max(ay, by)) {
+          if (ay == by) {
+            tLo = min(tLo, min(ax, bx));
+            tHi = max(tHi, max(ax, bx));
+          } else {
+            double t = Scalars.lerp(ax, bx, (y - ay) / (by - ay));
+            tLo = min(tLo, t);
+            tHi = max(tHi, t);
+          }
+        }
+      }
+    }
+
+    lo = tLo;
+    hi = tHi;
+    return tLo <= tHi;
+  }
+
+  /**
+   * Maps the normalized range in [lo, hi] onto [tLo, tHi], writing the result back into [lo, hi].
+   */
+  private void clipped(double tLo, double tHi) {
+    double
+      a = lo == 1 ? tHi : Scalars.lerp(tLo, tHi, lo),
+      b = hi == 1 ? tHi : Scalars.lerp(tLo, tHi, hi);
+    lo = min(a, b);
+    hi = max(a, b);
+  }
+
+  private void addIntersection(DoubleAccumulator acc) {
+    int la = (na - 1) * 2, lb = (nb - 1) * 2;
+    double
+      avx = ra[la] - ra[0],
+      avy = ra[la + 1] - ra[1],
+      bvx = rb[lb] - rb[0],
+      bvy = rb[lb + 1] - rb[1],
+      asbx = ra[0] - rb[0],
+      asby = ra[1] - rb[1];
+
+    double d = (avx * bvy) - (avy * bvx);
+    double s = ((bvx * asby) - (bvy * asbx)) / d;
+    double t = ((avx * asby) - (avy * asbx)) / d;
+
+    if (-0.1 <= s && s <= 1.1 && -0.1 <= t && t <= 1.1) {
+      polish(aLo + ((aHi - aLo) * s), bLo + ((bHi - bLo) * t));
+      add(acc, lo, hi);
+    } else {
+      // the chords are parallel, which means the curves are tangent here
+      refine(acc);
+    }
+  }
+
+  /// fallbacks
+
+  /**
+   * Bisects the current work item, without attempting to clip it.
+   */
+  private void subdivide(DoubleAccumulator acc) {
+    if (!hullsIntersect()) {
+      return;
+    }
+
+    // the halves are given one chance to clip, so that a transversal intersection near the tangent point is resolved by
+    // clipping rather than by the Newton fallback, which may not find it
+    if (isFlat(aLo, aHi, aLineLo, aLineHi) && isFlat(bLo, bHi, bLineLo, bLineHi)) {
+      addIntersection(acc);
+    } else {
+      split(MAX_STALLS - 1);
+    }
+  }
+
+  /**
+   * Runs Newton's method from the middle of the current work item, and adds the result if the curves coincide there.
+   */
+  private void refine(DoubleAccumulator acc) {
+    if (!hullsIntersect()) {
+      return;
+    }
+
+    double s = (aLo + aHi) / 2, t = (bLo + bHi) / 2;
+    for (int i = 0; i < NEWTON_ITERATIONS; i++) {
+      position(pa, na, s);
+      double ax = lo, ay = hi;
+      position(pb, nb, t);
+      double rx = lo - ax, ry = hi - ay;
+
+      direction(pa, na, s);
+      double adx = lo, ady = hi;
+      direction(pb, nb, t);
+      double bdx = lo, bdy = hi;
+
+      double det = (bdx * ady) - (adx * bdy);
+      if (Scalars.equals(det, 0, Scalars.EPSILON)) {
+        break;
+      }
+
+      s = Scalars.clamp(aLo, s + (((bdx * ry) - (bdy * rx)) / det), aHi);
+      t = Scalars.clamp(bLo, t + (((adx * ry) - (ady * rx)) / det), bHi);
+    }
+
+    if (distance(s, t) <= FAT_LINE_SPATIAL_EPSILON) {
+      add(acc, s, t);
+    }
+  }
+
+  /**
+   * The chords only approximate the curves to within {@code FAT_LINE_PARAMETRIC_RESOLUTION}, so this takes Newton steps
+   * from (s, t) for as long as they bring the curves closer together, writing the result into [lo, hi].
+   */
+  private void polish(double s, double t) {
+    double residual = distance(s, t);
+    for (int i = 0; i < NEWTON_ITERATIONS && residual > 0; i++) {
+      position(pa, na, s);
+      double ax = lo, ay = hi;
+      position(pb, nb, t);
+      double rx = lo - ax, ry = hi - ay;
+
+      direction(pa, na, s);
+      double adx = lo, ady = hi;
+      direction(pb, nb, t);
+      double bdx = lo, bdy = hi;
+
+      double det = (bdx * ady) - (adx * bdy);
+      if (Scalars.equals(det, 0, Scalars.EPSILON)) {
+        break;
+      }
+
+      double
+        sn = Scalars.clamp(aLo, s + (((bdx * ry) - (bdy * rx)) / det), aHi),
+        tn = Scalars.clamp(bLo, t + (((adx * ry) - (ady * rx)) / det), bHi),
+        rn = distance(sn, tn);
+      if (rn >= residual) {
+        break;
+      }
+
+      s = sn;
+      t = tn;
+      residual = rn;
+    }
+
+    lo = s;
+    hi = t;
+  }
+
+  /**
+   * Adds the intersection at (s, t), unless the curves stay within {@code FAT_LINE_SPATIAL_EPSILON} of each other
+   * between it and an existing intersection, in which case they're part of the same tangency, and only the closer of the
+   * two is kept.  Otherwise, a single tangency would be reported at every flat work item along its length.
+   */
+  private void add(DoubleAccumulator acc, double s, double t) {
+    double distance = distance(s, t);
+    for (int i = resultOffset; i < acc.size(); i += 2) {
+      double si = acc.get(i), ti = acc.get(i + 1);
+      if (distance((s + si) / 2, (t + ti) / 2) <= FAT_LINE_SPATIAL_EPSILON) {
+        if (distance < distance(si, ti)) {
+          acc.set(i, s);
+          acc.set(i + 1, t);
+        }
+        return;
+      }
+    }
+    acc.add(s, t);
+  }
+
+  /**
+   * @return the distance between {@code a} at {@code s} and {@code b} at {@code t}
+   */
+  private double distance(double s, double t) {
+    position(pa, na, s);
+    double ax = lo, ay = hi;
+    position(pb, nb, t);
+    double dx = lo - ax, dy = hi - ay;
+    return sqrt((dx * dx) + (dy * dy));
+  }
+
+  /// work stack
+
+  private void push(double aLo, double aHi, double bLo, double bHi, int stalls) {
+    if (depth + ENTRY_SIZE > stack.length) {
+      stack = Arrays.copyOf(stack, stack.length << 1);
+    }
+
+    stack[depth++] = aLo;
+    stack[depth++] = aHi;
+    stack[depth++] = bLo;
+    stack[depth++] = bHi;
+    stack[depth++] = stalls;
+    peakDepth = Math.max(peakDepth, depth);
+  }
+
+  private void pushQuantized(double aLo, double aHi, double bLo, double bHi) {
+    quantize(aLo, aHi);
+    aLo = lo;
+    aHi = hi;
+    quantize(bLo, bHi);
+    push(aLo, aHi, lo, hi, 0);
+  }
+
+  private void pop() {
+    stalls = (int) stack[--depth];
+    bHi = stack[--depth];
+    bLo = stack[--depth];
+    aHi = stack[--depth];
+    aLo = stack[--depth];
+  }
+
+  /**
+   * Writes the halves of [tLo, tHi] into {@code splits} at {@code offset}, or the unchanged range followed by NaN if
+   * it's already flat.
+   */
+  private void halves(double tLo, double tHi, boolean isFlat, int offset) {
+    if (isFlat) {
+      splits[offset] = tLo;
+      splits[offset + 1] = tHi;
+      splits[offset + 2] = Double.NaN;
+    } else {
+      double mid = Scalars.lerp(tLo, tHi, 0.5);
+      quantize(tLo, mid);
+      splits[offset] = lo;
+      splits[offset + 1] = hi;
+      quantize(mid, tHi);
+      splits[offset + 2] = lo;
+      splits[offset + 3] = hi;
+    }
+  }
+
+  /**
+   * Pushes every combination of the halves of the current ranges.
+   */
+  private void split(int stalls) {
+    splitCount++;
+    halves(aLo, aHi, isFlat(aLo, aHi, aLineLo, aLineHi), 0);
+    halves(bLo, bHi, isFlat(bLo, bHi, bLineLo, bLineHi), 4);
+
+    for (int i = 0; i < 4 && !Double.isNaN(splits[i]); i += 2) {
+      for (int j = 4; j < 8 && !Double.isNaN(splits[j]); j += 2) {
+        push(splits[i], splits[i + 1], splits[j], splits[j + 1], stalls);
+      }
+    }
+  }
+}
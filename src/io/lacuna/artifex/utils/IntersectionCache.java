@@ -0,0 +1,206 @@
+package io.lacuna.artifex.utils;
+
+import io.lacuna.artifex.Bezier2.CubicBezier2;
+import io.lacuna.artifex.Bezier2.QuadraticBezier2;
+import io.lacuna.artifex.Curve2;
+import io.lacuna.artifex.Vec2;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache of the intersections between pairs of curves, keyed by the type and control points of each
+ * curve, rather than their identity.  This is useful when many operations are performed against overlapping sets of
+ * curves, such as when folding a set operation over many regions, where most curves pass through each step unchanged.
+ * <p>
+ * Lookups are lock-free, and evictions follow the CLOCK policy: each entry is marked when it's read, and a marked entry
+ * is given a second chance before it's evicted.  This is safe to share across threads, and is enabled via
+ * {@link Intersections#setCache(IntersectionCache)}.
+ *
+ * @author ztellman
+ */
+public class IntersectionCache {
+
+  private static final double[] EMPTY = new double[0];
+
+  private static class Key {
+    private final double[] points;
+    private final int hash;
+
+    Key(Curve2 a, Curve2 b) {
+      double[] points = new double[18];
+      int len = write(b, points, write(a, points, 0));
+      this.points = len == points.length ? points : Arrays.copyOf(points, len);
+      this.hash = Arrays.hashCode(this.points);
+    }
+
+    private static int write(Vec2 v, double[] points, int idx) {
+      points[idx++] = v.x;
+      points[idx++] = v.y;
+      return idx;
+    }
+
+    /**
+     * Writes the degree of the curve, and then its control points, returning the index after the last point written.
+     */
+    private static int write(Curve2 c, double[] points, int idx) {
+      if (c instanceof QuadraticBezier2) {
+        QuadraticBezier2 q = (QuadraticBezier2) c;
+        points[idx++] = 2;
+        return write(q.p2, points, write(q.p1, points, write(q.p0, points, idx)));
+
+      } else if (c instanceof CubicBezier2) {
+        CubicBezier2 q = (CubicBezier2) c;
+        points[idx++] = 3;
+        return write(q.p3, points, write(q.p2, points, write(q.p1, points, write(q.p0, points, idx))));
+
+      } else {
+        points[idx++] = 1;
+        return write(c.end(), points, write(c.start(), points, idx));
+      }
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof Key) {
+        Key k = (Key) obj;
+        return hash == k.hash && Arrays.equals(points, k.points);
+      }
+      return false;
+    }
+  }
+
+  private static class Entry {
+    final Key key;
+    final double[] intersections;
+    volatile boolean referenced;
+
+    Entry(Key key, double[] intersections) {
+      this.key = key;
+      this.intersections = intersections;
+    }
+  }
+
+  private final ConcurrentHashMap<Key, Entry> entries;
+  private final Entry[] clock;
+  private int hand;
+
+  private final LongAdder
+    hits = new LongAdder(),
+    misses = new LongAdder(),
+    evictions = new LongAdder();
+
+  /**
+   * @param capacity the maximum number of curve pairs which will be cached
+   */
+  public IntersectionCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.entries = new ConcurrentHashMap<>(capacity);
+    this.clock = new Entry[capacity];
+  }
+
+  /**
+   * Writes the (s, t) pairs where {@code a} and {@code b} intersect into {@code acc}, using the cached result if one
+   * exists, and otherwise computing and caching it via {@link Intersections#narrowPhase(Curve2, Curve2,
+   * DoubleAccumulator)}.
+   *
+   * @return the number of pairs written
+   */
+  int intersections(Curve2 a, Curve2 b, DoubleAccumulator acc) {
+    Key key = new Key(a, b);
+    Entry e = entries.get(key);
+
+    if (e != null) {
+      hits.increment();
+      e.referenced = true;
+      for (double n : e.intersections) {
+        acc.add(n);
+      }
+      return e.intersections.length / 2;
+    }
+
+    misses.increment();
+    int offset = acc.size();
+    int count = Intersections.narrowPhase(a, b, acc);
+
+    double[] intersections = EMPTY;
+    if (count > 0) {
+      intersections = new double[count * 2];
+      for (int i = 0; i < intersections.length; i++) {
+        intersections[i] = acc.get(offset + i);
+      }
+    }
+    insert(new Entry(key, intersections));
+
+    return count;
+  }
+
+  private synchronized void insert(Entry e) {
+    if (entries.putIfAbsent(e.key, e) != null) {
+      return;
+    }
+
+    // advance the hand until we find an empty or unreferenced slot, clearing references as we go
+    for (; ; ) {
+      Entry curr = clock[hand];
+      if (curr == null) {
+        break;
+      } else if (curr.referenced) {
+        curr.referenced = false;
+        hand = (hand + 1) % clock.length;
+      } else {
+        entries.remove(curr.key, curr);
+        evictions.increment();
+        break;
+      }
+    }
+
+    clock[hand] = e;
+    hand = (hand + 1) % clock.length;
+  }
+
+  /**
+   * Removes every entry, and resets all counters.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    Arrays.fill(clock, null);
+    hand = 0;
+    hits.reset();
+    misses.reset();
+    evictions.reset();
+  }
+
+  public int capacity() {
+    return clock.length;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "[size=" + size() + ", hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions() + "]";
+  }
+}
@@ -0,0 +1,272 @@
+package io.lacuna.artifex.utils;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters describing the work done by {@link Intersections}, which are accumulated per-thread and in aggregate.
+ * Collection is disabled by default, and costs a single volatile read per call when it's off.
+ * <p>
+ * To see the cost of a single call, {@link #reset()} the thread-local stats via {@link #local()} beforehand, and take a
+ * {@link #snapshot()} afterwards.  The aggregate totals across all threads can be read via {@link #totals()}, or
+ * through JMX once {@link #registerMBean()} has been called.
+ *
+ * @author ztellman
+ */
+public class IntersectionStats {
+
+  /**
+   * The JMX interface for the aggregate totals.
+   */
+  public interface IntersectionStatsMXBean {
+    long getCalls();
+
+    long getIterations();
+
+    long getPeakDepth();
+
+    long getSplits();
+
+    long getCollinearChecks();
+
+    long getCollinearFallbacks();
+
+    long getDedupes();
+
+    void reset();
+  }
+
+  private static class Totals implements IntersectionStatsMXBean {
+    private final LongAdder
+      calls = new LongAdder(),
+      iterations = new LongAdder(),
+      splits = new LongAdder(),
+      collinearChecks = new LongAdder(),
+      collinearFallbacks = new LongAdder(),
+      dedupes = new LongAdder();
+    private final LongAccumulator peakDepth = new LongAccumulator(Math::max, 0);
+
+    public long getCalls() {
+      return calls.sum();
+    }
+
+    public long getIterations() {
+      return iterations.sum();
+    }
+
+    public long getPeakDepth() {
+      return peakDepth.get();
+    }
+
+    public long getSplits() {
+      return splits.sum();
+    }
+
+    public long getCollinearChecks() {
+      return collinearChecks.sum();
+    }
+
+    public long getCollinearFallbacks() {
+      return collinearFallbacks.sum();
+    }
+
+    public long getDedupes() {
+      return dedupes.sum();
+    }
+
+    public void reset() {
+      calls.reset();
+      iterations.reset();
+      splits.reset();
+      collinearChecks.reset();
+      collinearFallbacks.reset();
+      dedupes.reset();
+      peakDepth.reset();
+    }
+  }
+
+  public static final String MBEAN_NAME = "io.lacuna.artifex:type=IntersectionStats";
+
+  private static final ThreadLocal<IntersectionStats> LOCAL = ThreadLocal.withInitial(IntersectionStats::new);
+  private static final Totals TOTALS = new Totals();
+
+  private static volatile boolean enabled = false;
+
+  private long calls, iterations, peakDepth, splits, collinearChecks, collinearFallbacks, dedupes;
+
+  /// global state
+
+  public static void enable() {
+    enabled = true;
+  }
+
+  public static void disable() {
+    enabled = false;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Only work done on the current thread is recorded here.  While stats are enabled,
+   * {@link io.lacuna.artifex.utils.regions.Split#split(io.lacuna.artifex.Region2, io.lacuna.artifex.Region2)} solves
+   * everything on the calling thread, but work handed to an explicit {@link java.util.concurrent.Executor} is recorded
+   * on the executor's threads, and will only appear in {@link #totals()}.
+   *
+   * @return the mutable stats for the current thread
+   */
+  public static IntersectionStats local() {
+    return LOCAL.get();
+  }
+
+  /**
+   * @return a snapshot of the totals across all threads
+   */
+  public static IntersectionStats totals() {
+    IntersectionStats s = new IntersectionStats();
+    s.calls = TOTALS.getCalls();
+    s.iterations = TOTALS.getIterations();
+    s.peakDepth = TOTALS.getPeakDepth();
+    s.splits = TOTALS.getSplits();
+    s.collinearChecks = TOTALS.getCollinearChecks();
+    s.collinearFallbacks = TOTALS.getCollinearFallbacks();
+    s.dedupes = TOTALS.getDedupes();
+    return s;
+  }
+
+  public static void resetTotals() {
+    TOTALS.reset();
+  }
+
+  /**
+   * Registers the aggregate totals with the platform MBean server under {@link #MBEAN_NAME}, if they aren't already.
+   */
+  public static synchronized ObjectName registerMBean() {
+    try {
+      ObjectName name = new ObjectName(MBEAN_NAME);
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (!server.isRegistered(name)) {
+        server.registerMBean(TOTALS, name);
+      }
+      return name;
+    } catch (JMException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /// recording
+
+  static void recordCall() {
+    local().calls++;
+    TOTALS.calls.increment();
+  }
+
+  /**
+   * Records a single invocation of the fat line clipper.
+   */
+  static void recordClipping(int iterations, int peakDepth, int splits, int collinearChecks, int collinearFallbacks) {
+    IntersectionStats s = local();
+    s.iterations += iterations;
+    s.peakDepth = Math.max(s.peakDepth, peakDepth);
+    s.splits += splits;
+    s.collinearChecks += collinearChecks;
+    s.collinearFallbacks += collinearFallbacks;
+
+    TOTALS.iterations.add(iterations);
+    TOTALS.peakDepth.accumulate(peakDepth);
+    TOTALS.splits.add(splits);
+    TOTALS.collinearChecks.add(collinearChecks);
+    TOTALS.collinearFallbacks.add(collinearFallbacks);
+  }
+
+  static void recordDedupes(int dedupes) {
+    local().dedupes += dedupes;
+    TOTALS.dedupes.add(dedupes);
+  }
+
+  /// per-thread stats
+
+  /**
+   * @return a copy of these stats, which will not be affected by subsequent calls
+   */
+  public IntersectionStats snapshot() {
+    IntersectionStats s = new IntersectionStats();
+    s.calls = calls;
+    s.iterations = iterations;
+    s.peakDepth = peakDepth;
+    s.splits = splits;
+    s.collinearChecks = collinearChecks;
+    s.collinearFallbacks = collinearFallbacks;
+    s.dedupes = dedupes;
+    return s;
+  }
+
+  public void reset() {
+    calls = iterations = peakDepth = splits = collinearChecks = collinearFallbacks = dedupes = 0;
+  }
+
+  /**
+   * @return the number of curve pairs whose bounds overlapped, and were handed to the narrow phase
+   */
+  public long calls() {
+    return calls;
+  }
+
+  /**
+   * @return the number of fat line clipping iterations
+   */
+  public long iterations() {
+    return iterations;
+  }
+
+  /**
+   * @return the largest number of pending work items in any single call
+   */
+  public long peakDepth() {
+    return peakDepth;
+  }
+
+  /**
+   * @return the number of work items which were split because clipping didn't make enough progress
+   */
+  public long splits() {
+    return splits;
+  }
+
+  /**
+   * @return the number of times the curves were checked for collinearity
+   */
+  public long collinearChecks() {
+    return collinearChecks;
+  }
+
+  /**
+   * @return the number of times the curves were found to be collinear, and resolved as such
+   */
+  public long collinearFallbacks() {
+    return collinearFallbacks;
+  }
+
+  /**
+   * @return the number of duplicate intersections removed during normalization
+   */
+  public long dedupes() {
+    return dedupes;
+  }
+
+  @Override
+  public String toString() {
+    return "[calls=" + calls
+      + ", iterations=" + iterations
+      + ", peakDepth=" + peakDepth
+      + ", splits=" + splits
+      + ", collinearChecks=" + collinearChecks
+      + ", collinearFallbacks=" + collinearFallbacks
+      + ", dedupes=" + dedupes + "]";
+  }
+}
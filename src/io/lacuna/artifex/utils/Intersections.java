@@ -31,6 +31,8 @@ public class Intersections {
   public static final double SPATIAL_EPSILON = 1e-10;
 
   public static final int MAX_CUBIC_CUBIC_INTERSECTIONS = 9;
+
+  private static final int PROJECTION_ITERATIONS = 8;
   
   public static final Box2 PARAMETRIC_BOUNDS = box(vec(0, 0), vec(1, 1));
 
@@ -429,7 +431,7 @@ public class Intersections {
           ka = la.t.size() / aSize,
           kb = lb.t.size() / bSize;
         if (max(ka, kb) > 0.8) {
-          // TODO: switch over to subdivision at some point?
+          // FatLineClipper tracks how often this happens, and switches over to subdivision
           for (FatLine ap : la.split()) {
             for (FatLine bp : lb.split()) {
               queue.addLast(ap).addLast(bp);
@@ -443,6 +445,14 @@ public class Intersections {
     return normalize(acc.toArray(Vec2[]::new));
   }
 
+  /**
+   * An allocation-free equivalent to {@link #fatLineCurveCurve(Curve2, Curve2)}, which writes the (s, t) pairs into
+   * {@code acc} and returns the number of pairs written.
+   */
+  public static int fatLineCurveCurve(Curve2 a, Curve2 b, DoubleAccumulator acc) {
+    return FatLineClipper.get().intersections(a, b, acc);
+  }
+
   // post-processing
 
   public static double round(double n, double epsilon) {
@@ -455,7 +465,7 @@ public class Intersections {
     }
   }
 
-  private static boolean isCollinear(Curve2 a, Curve2 b, Vec2[] is) {
+  static boolean isCollinear(Curve2 a, Curve2 b, Vec2[] is) {
     if (is.length != 2) {
       return false;
     }
@@ -489,6 +499,7 @@ public class Intersections {
       }
     }
     limit = writeIdx;
+    int filtered = limit;
 
     if (limit > 1) {
       // dedupe intersections on b
@@ -514,11 +525,88 @@ public class Intersections {
       limit = writeIdx + 1;
     }
 
+    if (limit < filtered && IntersectionStats.isEnabled()) {
+      IntersectionStats.recordDedupes(filtered - limit);
+    }
+
     Vec2[] result = new Vec2[limit];
     System.arraycopy(intersections, 0, result, 0, limit);
     return result;
   }
 
+  private static void swap(DoubleAccumulator acc, int i, int j) {
+    double x = acc.get(i), y = acc.get(i + 1);
+    acc.set(i, acc.get(j));
+    acc.set(i + 1, acc.get(j + 1));
+    acc.set(j, x);
+    acc.set(j + 1, y);
+  }
+
+  /**
+   * A stable insertion sort over the (s, t) pairs in {@code acc}, which is appropriate given there will never be more
+   * than a handful.
+   */
+  private static void sort(DoubleAccumulator acc, int offset, int limit, int axis) {
+    for (int i = offset + 2; i < limit; i += 2) {
+      for (int j = i; j > offset && acc.get(j + axis) < acc.get(j - 2 + axis); j -= 2) {
+        swap(acc, j, j - 2);
+      }
+    }
+  }
+
+  private static int dedupe(DoubleAccumulator acc, int offset, int limit, int axis) {
+    int writeIdx = offset - 2;
+    for (int readIdx = offset; readIdx < limit; readIdx += 2) {
+      if (writeIdx < offset || !Scalars.equals(acc.get(writeIdx + axis), acc.get(readIdx + axis), EPSILON)) {
+        writeIdx += 2;
+        acc.set(writeIdx, acc.get(readIdx));
+        acc.set(writeIdx + 1, acc.get(readIdx + 1));
+      }
+    }
+    return writeIdx + 2;
+  }
+
+  /**
+   * The equivalent of {@link #normalize(Vec2[])} for the (s, t) pairs in {@code acc} starting at {@code offset}.
+   *
+   * @return the number of pairs remaining after {@code offset}
+   */
+  public static int normalize(DoubleAccumulator acc, int offset) {
+
+    int limit = acc.size();
+    int readIdx, writeIdx;
+
+    // round and filter within [0, 1]
+    for (readIdx = offset, writeIdx = offset; readIdx < limit; readIdx += 2) {
+      double s = round(acc.get(readIdx), PARAMETRIC_EPSILON);
+      double t = round(acc.get(readIdx + 1), PARAMETRIC_EPSILON);
+      if (0 <= s && s <= 1 && 0 <= t && t <= 1) {
+        acc.set(writeIdx++, s);
+        acc.set(writeIdx++, t);
+      }
+    }
+    limit = writeIdx;
+    int filtered = limit;
+
+    // dedupe intersections on b, and then on a
+    if (limit - offset > 2) {
+      sort(acc, offset, limit, 1);
+      limit = dedupe(acc, offset, limit, 1);
+    }
+
+    if (limit - offset > 2) {
+      sort(acc, offset, limit, 0);
+      limit = dedupe(acc, offset, limit, 0);
+    }
+
+    if (limit < filtered && IntersectionStats.isEnabled()) {
+      IntersectionStats.recordDedupes((filtered - limit) / 2);
+    }
+
+    acc.pop(acc.size() - limit);
+    return (limit - offset) / 2;
+  }
+
   // analytical methods
 
   public static Vec2[] collinearIntersection(Curve2 a, Curve2 b) {
@@ -554,6 +642,91 @@ public class Intersections {
     return result.toArray(Vec2[]::new);
   }
 
+  /**
+   * Returns the (s, t) pairs at either end of the interval where the curves coincide, or an empty array if they don't.
+   * Unlike {@link #collinearIntersection(Curve2, Curve2)}, this doesn't assume the curves are collinear, and checks that
+   * each endpoint actually lies on the other curve, so it's safe to use on curves which double back on themselves.
+   */
+  public static Vec2[] coincidentIntersection(Curve2 a, Curve2 b) {
+    Vec2[] result = new Vec2[2];
+    int count = 0;
+
+    for (int i = 0; i < 4 && count <= 2; i++) {
+      Curve2 from = i < 2 ? a : b;
+      Curve2 to = i < 2 ? b : a;
+      Vec2 p = from.position(i % 2);
+
+      double t = round(project(to, p), PARAMETRIC_EPSILON);
+      if (!Vec.equals(to.position(t), p, SPATIAL_EPSILON)) {
+        continue;
+      }
+
+      Vec2 v = i < 2 ? vec(i % 2, t) : vec(t, i % 2);
+      boolean duplicate = false;
+      for (int j = 0; j < count && j < 2; j++) {
+        duplicate |= Vec.equals(result[j], v, PARAMETRIC_EPSILON);
+      }
+
+      if (!duplicate) {
+        if (count < 2) {
+          result[count] = v;
+        }
+        count++;
+      }
+    }
+
+    if (count != 2) {
+      return new Vec2[0];
+    }
+
+    if (result[1].x < result[0].x) {
+      Vec2 tmp = result[0];
+      result[0] = result[1];
+      result[1] = tmp;
+    }
+
+    return isCollinear(a, b, result) ? result : new Vec2[0];
+  }
+
+  /**
+   * Returns the parameter within [0, 1] of the point on {@code c} nearest to {@code p}.  The nearest point search on
+   * cubic curves can settle on the wrong local minimum, so we also consider everywhere the curve crosses the horizontal
+   * and vertical lines through {@code p}, which must include {@code p} itself if it lies on the curve.  Each candidate is
+   * refined using the Gauss-Newton method.
+   */
+  private static double project(Curve2 c, Vec2 p) {
+    double best = Double.NaN, bestDistance = Double.POSITIVE_INFINITY;
+
+    Vec2[] horizontal = lineCurve(line(p, p.add(vec(1, 0))), c);
+    Vec2[] vertical = lineCurve(line(p, p.add(vec(0, 1))), c);
+    for (int i = -1; i < horizontal.length + vertical.length; i++) {
+      double t = i < 0
+        ? c.nearestPoint(p)
+        : (i < horizontal.length ? horizontal[i] : vertical[i - horizontal.length]).y;
+      t = refine(c, p, Math.max(0, Math.min(1, t)));
+
+      double distance = c.position(t).sub(p).lengthSquared();
+      if (distance < bestDistance) {
+        best = t;
+        bestDistance = distance;
+      }
+    }
+
+    return best;
+  }
+
+  private static double refine(Curve2 c, Vec2 p, double t) {
+    for (int i = 0; i < PROJECTION_ITERATIONS; i++) {
+      Vec2 d = c.direction(t);
+      double dt = dot(c.position(t).sub(p), d) / dot(d, d);
+      t = Math.max(0, Math.min(1, t - dt));
+      if (!(abs(dt) > Scalars.MACHINE_EPSILON)) {
+        break;
+      }
+    }
+    return t;
+  }
+
   public static Vec2[] lineCurve(Line2 a, Curve2 b) {
     if (b instanceof Line2) {
       return lineLine(a, (Line2) b);
@@ -647,26 +820,376 @@ public class Intersections {
     return result;
   }
 
-  //
+  // quadratic-quadratic
 
-  public static Vec2[] intersections(Curve2 a, Curve2 b) {
-    if (!a.bounds().expand(SPATIAL_EPSILON).intersects(b.bounds())) {
-      return new Vec2[0];
+  // below this, a quadratic curve is too close to a line for its implicit form to be well-conditioned
+  private static final double IMPLICIT_CONDITION_EPSILON = 1e-3;
+
+  // scratch space for the quartic's roots, so that the narrow phase doesn't allocate
+  private static final ThreadLocal<double[]> QUARTIC_ROOTS = ThreadLocal.withInitial(() -> new double[4]);
+
+  /**
+   * The area of the curve's control polygon, relative to the squared length of its sides.
+   */
+  private static double implicitCondition(QuadraticBezier2 c) {
+    double
+      ax = c.p1.x - c.p0.x,
+      ay = c.p1.y - c.p0.y,
+      bx = c.p2.x - c.p0.x,
+      by = c.p2.y - c.p0.y,
+      scale = (ax * ax) + (ay * ay) + (bx * bx) + (by * by);
+
+    return scale == 0 ? 0 : abs((ax * by) - (ay * bx)) / scale;
+  }
+
+  /**
+   * Intersects two quadratic curves analytically.  Relative to its control points, any point on a quadratic curve has
+   * barycentric coordinates (b0, b1, b2) satisfying {@code b1^2 = 4 * b0 * b2}, and since each coordinate is an affine
+   * function of position, substituting the other curve yields a quartic.  The curve which is furthest from being a line
+   * is the one implicitized, and each root is refined with a few Newton steps against the parametric forms.
+   *
+   * @return the number of (s, t) pairs written into {@code acc}, or -1 if neither curve can be reliably implicitized,
+   * or both lie on the same parabola
+   */
+  public static int quadraticQuadratic(QuadraticBezier2 a, QuadraticBezier2 b, DoubleAccumulator acc) {
+    boolean swap = implicitCondition(b) > implicitCondition(a);
+    QuadraticBezier2 p = swap ? b : a;
+    QuadraticBezier2 q = swap ? a : b;
+
+    if (implicitCondition(p) < IMPLICIT_CONDITION_EPSILON) {
+      return -1;
     }
 
+    // everything is relative to p0, as (t^2, t, 1) coefficients
+    double
+      ox = p.p0.x,
+      oy = p.p0.y,
+      p1x = p.p1.x - ox,
+      p1y = p.p1.y - oy,
+      p2x = p.p2.x - ox,
+      p2y = p.p2.y - oy,
+      q0x = q.p0.x - ox,
+      q0y = q.p0.y - oy,
+      q1x = q.p1.x - ox,
+      q1y = q.p1.y - oy,
+      q2x = q.p2.x - ox,
+      q2y = q.p2.y - oy;
+
+    double
+      pax = p2x - (2 * p1x),
+      pay = p2y - (2 * p1y),
+      pbx = 2 * p1x,
+      pby = 2 * p1y,
+      qax = q0x - (2 * q1x) + q2x,
+      qay = q0y - (2 * q1y) + q2y,
+      qbx = 2 * (q1x - q0x),
+      qby = 2 * (q1y - q0y);
+
+    // the barycentric coordinates as (x, y) coefficients, where b0 also has a constant term of 1
+    double
+      area = (p1x * p2y) - (p1y * p2x),
+      x0 = (p1y - p2y) / area,
+      y0 = (p2x - p1x) / area,
+      x1 = p2y / area,
+      y1 = -p2x / area,
+      x2 = -p1y / area,
+      y2 = p1x / area;
+
+    // the barycentric coordinates along q
+    double
+      u0 = (x0 * qax) + (y0 * qay),
+      v0 = (x0 * qbx) + (y0 * qby),
+      w0 = (x0 * q0x) + (y0 * q0y) + 1,
+      u1 = (x1 * qax) + (y1 * qay),
+      v1 = (x1 * qbx) + (y1 * qby),
+      w1 = (x1 * q0x) + (y1 * q0y),
+      u2 = (x2 * qax) + (y2 * qay),
+      v2 = (x2 * qbx) + (y2 * qby),
+      w2 = (x2 * q0x) + (y2 * q0y);
+
+    // b1^2 - 4 * b0 * b2
+    double
+      e4 = (u1 * u1) - (4 * u0 * u2),
+      e3 = (2 * u1 * v1) - (4 * ((u0 * v2) + (v0 * u2))),
+      e2 = (v1 * v1) + (2 * u1 * w1) - (4 * ((u0 * w2) + (v0 * v2) + (w0 * u2))),
+      e1 = (2 * v1 * w1) - (4 * ((v0 * w2) + (w0 * v2))),
+      e0 = (w1 * w1) - (4 * w0 * w2);
+
+    if (max(max(abs(e4), abs(e3)), max(max(abs(e2), abs(e1)), abs(e0))) < SPATIAL_EPSILON) {
+      return -1;
+    }
+
+    int offset = acc.size();
+    double[] roots = QUARTIC_ROOTS.get();
+    int count = Equations.solveQuartic(e4, e3, e2, e1, e0, -PARAMETRIC_EPSILON, 1 + PARAMETRIC_EPSILON, roots);
+    for (int i = 0; i < count; i++) {
+      double t = roots[i];
+
+      // since b0 + b1 + b2 = 1, and b1 = 2s(1 - s), b2 = s^2, we have s = b2 + b1/2
+      double
+        x = (((qax * t) + qbx) * t) + q0x,
+        y = (((qay * t) + qby) * t) + q0y,
+        s = (x2 * x) + (y2 * y) + (((x1 * x) + (y1 * y)) / 2);
+
+      double
+        dx = x - (((pax * s) + pbx) * s),
+        dy = y - (((pay * s) + pby) * s);
+
+      // near a tangency the Jacobian is nearly singular, and a Newton step can overshoot, so only keep steps which bring
+      // the curves closer together
+      for (int j = 0; j < 2; j++) {
+        double
+          pdx = (2 * pax * s) + pbx,
+          pdy = (2 * pay * s) + pby,
+          qdx = (2 * qax * t) + qbx,
+          qdy = (2 * qay * t) + qby,
+          det = (qdx * pdy) - (pdx * qdy);
+
+        if (abs(det) < EPSILON) {
+          break;
+        }
+
+        double
+          sn = s + (((qdx * dy) - (qdy * dx)) / det),
+          tn = t + (((pdx * dy) - (pdy * dx)) / det),
+          dxn = ((((qax * tn) + qbx) * tn) + q0x) - ((((pax * sn) + pbx) * sn)),
+          dyn = ((((qay * tn) + qby) * tn) + q0y) - ((((pay * sn) + pby) * sn));
+
+        if ((dxn * dxn) + (dyn * dyn) >= (dx * dx) + (dy * dy)) {
+          break;
+        }
+        s = sn;
+        t = tn;
+        dx = dxn;
+        dy = dyn;
+      }
+
+      if ((dx * dx) + (dy * dy) <= FAT_LINE_SPATIAL_EPSILON * FAT_LINE_SPATIAL_EPSILON) {
+        if (swap) {
+          acc.add(t, s);
+        } else {
+          acc.add(s, t);
+        }
+      }
+    }
+
+    return normalize(acc, offset);
+  }
+
+  //
+
+  private static Vec2[] lineIntersections(Curve2 a, Curve2 b) {
     if (a instanceof Line2) {
       return normalize(lineCurve((Line2) a, b));
-    } else if (b instanceof Line2) {
+    } else {
       Vec2[] result = normalize(lineCurve((Line2) b, a));
       for (int i = 0; i < result.length; i++) {
         result[i] = result[i].swap();
       }
       return result;
+    }
+  }
+
+  /**
+   * Checks the control point hulls first, since they're cheaper to compute, and will reject most disjoint curves.
+   */
+  private static boolean overlaps(Curve2 a, Curve2 b) {
+    return a.hull().intersects(b.hull(), SPATIAL_EPSILON)
+      && a.bounds().intersects(b.bounds(), SPATIAL_EPSILON);
+  }
+
+  public static Vec2[] intersections(Curve2 a, Curve2 b) {
+    if (!overlaps(a, b)) {
+      return new Vec2[0];
+    }
+
+    //return subdivisionCurveCurve(a, b);
+    DoubleAccumulator acc = new DoubleAccumulator();
+    Vec2[] result = new Vec2[solve(a, b, acc)];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = vec(acc.get(i * 2), acc.get(i * 2 + 1));
+    }
+    return result;
+  }
+
+  /**
+   * Writes the (s, t) pairs where {@code a} and {@code b} intersect into {@code acc}.
+   *
+   * @return the number of pairs written
+   */
+  public static int intersections(Curve2 a, Curve2 b, DoubleAccumulator acc) {
+    if (!overlaps(a, b)) {
+      return 0;
+    }
+
+    return solve(a, b, acc);
+  }
+
+  // caching
+
+  private static volatile IntersectionCache cache = null;
+
+  /**
+   * Sets a cache which will be consulted for every pair of curves whose bounds overlap, or disables caching if
+   * {@code cache} is null.  Caching is disabled by default.
+   */
+  public static void setCache(IntersectionCache cache) {
+    Intersections.cache = cache;
+  }
+
+  /**
+   * @return the current cache, or null if caching is disabled
+   */
+  public static IntersectionCache getCache() {
+    return cache;
+  }
+
+  private static int solve(Curve2 a, Curve2 b, DoubleAccumulator acc) {
+    IntersectionCache c = cache;
+    return c == null
+      ? narrowPhase(a, b, acc)
+      : c.intersections(a, b, acc);
+  }
+
+  /**
+   * The same as {@link #intersections(Curve2, Curve2, DoubleAccumulator)}, but assumes the curves' bounds have already
+   * been checked, and bypasses the cache.
+   */
+  static int narrowPhase(Curve2 a, Curve2 b, DoubleAccumulator acc) {
+    if (IntersectionStats.isEnabled()) {
+      IntersectionStats.recordCall();
+    }
+
+    if (a instanceof Line2 || b instanceof Line2) {
+      Vec2[] result = lineIntersections(a, b);
+      for (Vec2 i : result) {
+        acc.add(i.x, i.y);
+      }
+      return result.length;
+    } else if (a instanceof QuadraticBezier2 && b instanceof QuadraticBezier2) {
+      int count = FatLineClipper.get().coincidence(a, b, acc);
+      if (count == 0) {
+        count = quadraticQuadratic((QuadraticBezier2) a, (QuadraticBezier2) b, acc);
+      }
+      return count >= 0 ? count : fatLineCurveCurve(a, b, acc);
     } else {
-      //return subdivisionCurveCurve(a, b);
-      return fatLineCurveCurve(a, b);
+      return fatLineCurveCurve(a, b, acc);
+    }
+  }
+
+  // batched
+
+  /**
+   * A callback for {@link #intersectAll(Curve2[], Curve2[], IntersectionSink)}, which is invoked for every point of
+   * intersection.
+   */
+  @FunctionalInterface
+  public interface IntersectionSink {
+
+    /**
+     * @param a the index of the curve in the first array
+     * @param b the index of the curve in the second array
+     * @param s the parametric position of the intersection on {@code a}
+     * @param t the parametric position of the intersection on {@code b}
+     */
+    void intersection(int a, int b, double s, double t);
+  }
+
+  /**
+   * Packed bounding boxes for an array of curves, sorted by their lower x-coordinate.
+   */
+  private static class Bounds {
+    final double[] lx, ly, ux, uy;
+    final int[] order;
+
+    Bounds(Curve2[] cs, double epsilon) {
+      int n = cs.length;
+      lx = new double[n];
+      ly = new double[n];
+      ux = new double[n];
+      uy = new double[n];
+      order = new int[n];
+
+      double[] keys = new double[n];
+      for (int i = 0; i < n; i++) {
+        Box2 b = cs[i].bounds();
+        lx[i] = b.lx - epsilon;
+        ly[i] = b.ly - epsilon;
+        ux[i] = b.ux + epsilon;
+        uy[i] = b.uy + epsilon;
+        keys[i] = lx[i];
+        order[i] = i;
+      }
+      Sorts.sort(keys, order);
+    }
+
+    boolean intersects(int i, Bounds b, int j) {
+      return lx[i] <= b.ux[j] && b.lx[j] <= ux[i] && ly[i] <= b.uy[j] && b.ly[j] <= uy[i];
+    }
+  }
+
+  /**
+   * Removes every active index whose upper x-coordinate is less than {@code x}, returning the new number of active
+   * indices.
+   */
+  private static int prune(int[] active, int size, double[] ux, double x) {
+    for (int i = 0; i < size; ) {
+      if (ux[active[i]] < x) {
+        active[i] = active[--size];
+      } else {
+        i++;
+      }
     }
+    return size;
   }
 
+  /**
+   * Finds every intersection between a curve in {@code as} and a curve in {@code bs}, and passes it to {@code sink}.
+   * Rather than checking every pair, this computes each curve's bounds once, and uses a sweep over the sorted lower
+   * x-coordinates to only consider pairs whose bounds overlap.
+   */
+  public static void intersectAll(Curve2[] as, Curve2[] bs, IntersectionSink sink) {
+    Bounds a = new Bounds(as, SPATIAL_EPSILON);
+    Bounds b = new Bounds(bs, 0);
+
+    int[]
+      aActive = new int[as.length],
+      bActive = new int[bs.length];
+    int aSize = 0, bSize = 0;
+
+    DoubleAccumulator acc = new DoubleAccumulator();
+    int i = 0, j = 0;
+    while (i < as.length || j < bs.length) {
+
+      // take whichever curve has the lowest x-coordinate, and compare it against the other side's active set
+      if (j == bs.length || (i < as.length && a.lx[a.order[i]] <= b.lx[b.order[j]])) {
+        int ai = a.order[i++];
+        bSize = prune(bActive, bSize, b.ux, a.lx[ai]);
+        for (int k = 0; k < bSize; k++) {
+          if (a.intersects(ai, b, bActive[k])) {
+            emit(as, bs, ai, bActive[k], acc, sink);
+          }
+        }
+        aActive[aSize++] = ai;
 
-}
\ No newline at end of file
+      } else {
+        int bj = b.order[j++];
+        aSize = prune(aActive, aSize, a.ux, b.lx[bj]);
+        for (int k = 0; k < aSize; k++) {
+          if (a.intersects(aActive[k], b, bj)) {
+            emit(as, bs, aActive[k], bj, acc, sink);
+          }
+        }
+        bActive[bSize++] = bj;
+      }
+    }
+  }
+
+  private static void emit(Curve2[] as, Curve2[] bs, int i, int j, DoubleAccumulator acc, IntersectionSink sink) {
+    acc.clear();
+    int n = solve(as[i], bs[j], acc);
+    for (int k = 0; k < n; k++) {
+      sink.intersection(i, j, acc.get(k * 2), acc.get(k * 2 + 1));
+    }
+  }
+}
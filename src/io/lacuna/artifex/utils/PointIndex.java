@@ -0,0 +1,243 @@
+package io.lacuna.artifex.utils;
+
+import io.lacuna.artifex.Box2;
+import io.lacuna.artifex.Curve2;
+import io.lacuna.artifex.Region2;
+import io.lacuna.artifex.Ring2;
+import io.lacuna.artifex.Ring2.Result;
+import io.lacuna.artifex.Vec2;
+
+import java.util.Arrays;
+
+import static io.lacuna.artifex.utils.Intersections.SPATIAL_EPSILON;
+import static io.lacuna.artifex.utils.Scalars.EPSILON;
+
+/**
+ * A prepared index for testing many points against a static region, one at a time.  The y-extent of every curve in the
+ * region is held in a centered interval tree, so that a ray cast from a point is only tested against the curves which
+ * span its y-coordinate, which are found in {@code O(log n + k)} time.
+ * <p>
+ * The index is immutable, and can be shared across threads.  The results are identical to calling
+ * {@link Region2#test(Vec2)} on each point.
+ *
+ * @author ztellman
+ */
+public class PointIndex {
+
+  private final Region2 region;
+
+  // every curve in the region, ordered by ring and then by index within the ring, along with the ring it belongs to
+  private final Curve2[] curves;
+  private final int[] rings;
+
+  // the bounds of each ring, and the end of the rays we cast against it
+  private final Box2[] bounds;
+  private final double[] limits;
+
+  // for each node of the interval tree, the key which every interval within the node spans, its children, and the range
+  // of its intervals within `byLow` and `byHigh`
+  private final double[] centers;
+  private final int[] lefts, rights, starts, ends;
+
+  // the intervals within each node, sorted by ascending lower bound and descending upper bound
+  private final int[] byLow, byHigh;
+  private final double[] lowKeys, highKeys;
+
+  private final int root;
+
+  // only used while building the tree
+  private int nodeCount, intervalCount;
+
+  public PointIndex(Region2 region) {
+    this.region = region;
+
+    int n = 0;
+    for (Ring2 r : region.rings) {
+      n += r.curves.length;
+    }
+
+    curves = new Curve2[n];
+    rings = new int[n];
+    bounds = new Box2[region.rings.length];
+    limits = new double[region.rings.length];
+
+    for (int i = 0, idx = 0; i < region.rings.length; i++) {
+      Ring2 r = region.rings[i];
+      bounds[i] = r.bounds.expand(SPATIAL_EPSILON);
+      limits[i] = r.bounds.ux + 1;
+      for (Curve2 c : r.curves) {
+        curves[idx] = c;
+        rings[idx] = i;
+        idx++;
+      }
+    }
+
+    double[] lo = new double[n];
+    double[] hi = new double[n];
+    int[] indices = new int[n];
+    for (int i = 0; i < n; i++) {
+      Box2 b = curves[i].bounds();
+      lo[i] = b.ly - EPSILON;
+      hi[i] = b.uy + EPSILON;
+      indices[i] = i;
+    }
+
+    // each node holds at least one interval, so there are at most `n` nodes
+    centers = new double[n];
+    lefts = new int[n];
+    rights = new int[n];
+    starts = new int[n];
+    ends = new int[n];
+    byLow = new int[n];
+    byHigh = new int[n];
+    lowKeys = new double[n];
+    highKeys = new double[n];
+
+    root = build(lo, hi, indices);
+  }
+
+  /**
+   * Builds the subtree for {@code intervals}, returning its root, or {@code -1} if there are no intervals.
+   */
+  private int build(double[] lo, double[] hi, int[] intervals) {
+    int n = intervals.length;
+    if (n == 0) {
+      return -1;
+    }
+
+    // the median endpoint guarantees that at most half of the intervals lie entirely on either side
+    double[] endpoints = new double[n * 2];
+    for (int i = 0; i < n; i++) {
+      endpoints[i * 2] = lo[intervals[i]];
+      endpoints[i * 2 + 1] = hi[intervals[i]];
+    }
+    Arrays.sort(endpoints);
+    double center = endpoints[n];
+
+    int leftCount = 0, rightCount = 0, spanCount = 0;
+    for (int i : intervals) {
+      if (hi[i] < center) {
+        leftCount++;
+      } else if (lo[i] > center) {
+        rightCount++;
+      } else {
+        spanCount++;
+      }
+    }
+
+    int[] left = new int[leftCount], right = new int[rightCount];
+    int start = intervalCount;
+    leftCount = rightCount = 0;
+    for (int i : intervals) {
+      if (hi[i] < center) {
+        left[leftCount++] = i;
+      } else if (lo[i] > center) {
+        right[rightCount++] = i;
+      } else {
+        byLow[intervalCount] = byHigh[intervalCount] = i;
+        lowKeys[intervalCount] = lo[i];
+        highKeys[intervalCount] = -hi[i];
+        intervalCount++;
+      }
+    }
+    Sorts.sort(lowKeys, byLow, start, intervalCount);
+    Sorts.sort(highKeys, byHigh, start, intervalCount);
+    for (int i = start; i < intervalCount; i++) {
+      highKeys[i] = -highKeys[i];
+    }
+
+    int node = nodeCount++;
+    centers[node] = center;
+    starts[node] = start;
+    ends[node] = start + spanCount;
+    lefts[node] = build(lo, hi, left);
+    rights[node] = build(lo, hi, right);
+
+    return node;
+  }
+
+  public Region2 region() {
+    return region;
+  }
+
+  public Result test(Vec2 p) {
+    return test(p.x, p.y);
+  }
+
+  public Result test(double x, double y) {
+
+    // find every curve whose y-extent spans the point
+    int[] candidates = new int[16];
+    int n = 0;
+
+    int node = root;
+    while (node >= 0) {
+      int start = starts[node], end = ends[node];
+      if (y < centers[node]) {
+        for (int i = start; i < end && lowKeys[i] <= y; i++) {
+          candidates = append(candidates, n++, byLow[i]);
+        }
+        node = lefts[node];
+      } else if (y > centers[node]) {
+        for (int i = start; i < end && highKeys[i] >= y; i++) {
+          candidates = append(candidates, n++, byHigh[i]);
+        }
+        node = rights[node];
+      } else {
+        for (int i = start; i < end; i++) {
+          candidates = append(candidates, n++, byLow[i]);
+        }
+        break;
+      }
+    }
+
+    Arrays.sort(candidates, 0, n);
+
+    // the candidates are grouped by ring, in the same order that `Region2.test` visits them, so the first ring which
+    // contains the point decides the result
+    for (int i = 0; i < n; ) {
+      int r = rings[candidates[i]];
+      int end = i;
+      while (end < n && rings[candidates[end]] == r) {
+        end++;
+      }
+
+      if (bounds[r].contains(x, y)) {
+        boolean odd = false;
+        for (int j = i; j < end; j++) {
+          Curve2 c = curves[candidates[j]];
+          int crossing = Crossings.crossing(c, x, y, limits[r]);
+          if (crossing == Crossings.EDGE) {
+            return new Result(c);
+          } else if (crossing != 0) {
+            odd = !odd;
+          }
+        }
+
+        if (odd) {
+          return region.rings[r].isClockwise ? Result.OUTSIDE : Result.INSIDE;
+        }
+      }
+
+      i = end;
+    }
+
+    return Result.OUTSIDE;
+  }
+
+  public boolean contains(Vec2 p) {
+    return test(p.x, p.y).inside;
+  }
+
+  public boolean contains(double x, double y) {
+    return test(x, y).inside;
+  }
+
+  private static int[] append(int[] values, int idx, int value) {
+    if (idx == values.length) {
+      values = Arrays.copyOf(values, idx * 2);
+    }
+    values[idx] = value;
+    return values;
+  }
+}
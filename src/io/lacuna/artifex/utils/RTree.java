@@ -0,0 +1,177 @@
+package io.lacuna.artifex.utils;
+
+import io.lacuna.artifex.Box2;
+
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable R-tree over a fixed set of boxes, bulk-loaded using Sort-Tile-Recursive packing.  Each level is sorted
+ * into vertical slices by the x-coordinate of its centers, and then each slice by the y-coordinate, so that consecutive
+ * runs of {@code NODE_SIZE} entries are spatially close, and become the nodes of the level above.
+ * <p>
+ * Boxes are referred to by their index in the array passed to the constructor.
+ *
+ * @author ztellman
+ */
+public class RTree {
+
+  private static final int NODE_SIZE = 16;
+
+  // for each level, from the leaves to the root, the bounds of each entry and the range of entries below it
+  private final double[][] lx, ly, ux, uy;
+  private final int[][] starts, ends;
+
+  public RTree(Box2[] boxes) {
+    int levels = 1;
+    for (int n = boxes.length; n > 1; n = (n + NODE_SIZE - 1) / NODE_SIZE) {
+      levels++;
+    }
+
+    lx = new double[levels][];
+    ly = new double[levels][];
+    ux = new double[levels][];
+    uy = new double[levels][];
+    starts = new int[levels][];
+    ends = new int[levels][];
+
+    // the leaves refer to the boxes themselves
+    int n = boxes.length;
+    allocate(0, n);
+    for (int i = 0; i < n; i++) {
+      Box2 b = boxes[i];
+      lx[0][i] = b.lx;
+      ly[0][i] = b.ly;
+      ux[0][i] = b.ux;
+      uy[0][i] = b.uy;
+      starts[0][i] = i;
+      ends[0][i] = i + 1;
+    }
+
+    for (int level = 0; level < levels - 1; level++) {
+      pack(level);
+
+      int m = (n + NODE_SIZE - 1) / NODE_SIZE;
+      allocate(level + 1, m);
+      for (int i = 0; i < m; i++) {
+        int start = i * NODE_SIZE, end = Math.min(n, start + NODE_SIZE);
+        double nlx = Double.POSITIVE_INFINITY, nly = Double.POSITIVE_INFINITY,
+          nux = Double.NEGATIVE_INFINITY, nuy = Double.NEGATIVE_INFINITY;
+        for (int j = start; j < end; j++) {
+          nlx = Math.min(nlx, lx[level][j]);
+          nly = Math.min(nly, ly[level][j]);
+          nux = Math.max(nux, ux[level][j]);
+          nuy = Math.max(nuy, uy[level][j]);
+        }
+        lx[level + 1][i] = nlx;
+        ly[level + 1][i] = nly;
+        ux[level + 1][i] = nux;
+        uy[level + 1][i] = nuy;
+        starts[level + 1][i] = start;
+        ends[level + 1][i] = end;
+      }
+      n = m;
+    }
+  }
+
+  private void allocate(int level, int n) {
+    lx[level] = new double[n];
+    ly[level] = new double[n];
+    ux[level] = new double[n];
+    uy[level] = new double[n];
+    starts[level] = new int[n];
+    ends[level] = new int[n];
+  }
+
+  /**
+   * Reorders the entries of {@code level} so that each consecutive run of {@code NODE_SIZE} entries forms a tile.
+   */
+  private void pack(int level) {
+    int n = lx[level].length;
+    int nodes = (n + NODE_SIZE - 1) / NODE_SIZE;
+    int sliceSize = (int) Math.ceil(Math.sqrt(nodes)) * NODE_SIZE;
+
+    int[] order = new int[n];
+    double[] keys = new double[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+      keys[i] = lx[level][i] + ux[level][i];
+    }
+    Sorts.sort(keys, order);
+
+    for (int start = 0; start < n; start += sliceSize) {
+      int end = Math.min(n, start + sliceSize);
+      for (int i = start; i < end; i++) {
+        keys[i] = ly[level][order[i]] + uy[level][order[i]];
+      }
+      Sorts.sort(keys, order, start, end);
+    }
+
+    lx[level] = permute(lx[level], order);
+    ly[level] = permute(ly[level], order);
+    ux[level] = permute(ux[level], order);
+    uy[level] = permute(uy[level], order);
+    starts[level] = permute(starts[level], order);
+    ends[level] = permute(ends[level], order);
+  }
+
+  private static double[] permute(double[] values, int[] order) {
+    double[] result = new double[values.length];
+    for (int i = 0; i < order.length; i++) {
+      result[i] = values[order[i]];
+    }
+    return result;
+  }
+
+  private static int[] permute(int[] values, int[] order) {
+    int[] result = new int[values.length];
+    for (int i = 0; i < order.length; i++) {
+      result[i] = values[order[i]];
+    }
+    return result;
+  }
+
+  private boolean intersects(int level, int i, Box2 b, double epsilon) {
+    return b.lx - epsilon <= ux[level][i]
+      & lx[level][i] <= b.ux + epsilon
+      & b.ly - epsilon <= uy[level][i]
+      & ly[level][i] <= b.uy + epsilon;
+  }
+
+  /**
+   * Invokes {@code f} with the index of every box which intersects {@code b}, when expanded by {@code epsilon}.
+   */
+  public void search(Box2 b, double epsilon, IntConsumer f) {
+    search(lx.length - 1, 0, b, epsilon, f, false);
+  }
+
+  /**
+   * @return true if any box intersects {@code b}, when expanded by {@code epsilon}
+   */
+  public boolean intersects(Box2 b, double epsilon) {
+    return search(lx.length - 1, 0, b, epsilon, null, true);
+  }
+
+  private boolean search(int level, int i, Box2 b, double epsilon, IntConsumer f, boolean any) {
+    if (lx[level].length == 0 || !intersects(level, i, b, epsilon)) {
+      return false;
+    }
+
+    if (level == 0) {
+      if (!any) {
+        f.accept(starts[0][i]);
+      }
+      return true;
+    }
+
+    boolean result = false;
+    for (int j = starts[level][i]; j < ends[level][i]; j++) {
+      if (search(level - 1, j, b, epsilon, f, any)) {
+        result = true;
+        if (any) {
+          break;
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -53,6 +53,11 @@ public class Scalars {
     }
   }
 
+  public static double normalizationFactor(double a, double b, double c, double d, double e) {
+    double exponent = getExponent(max(max(max(a, b), max(c, d)), e));
+    return (exponent < -8 || exponent > 8) ? Math.pow(2, -exponent) : 1;
+  }
+
   public static double normalizationFactor(double a, double b, double c, double d) {
     double exponent = getExponent(max(max(a, b), max(c, d)));
     return (exponent < -8 || exponent > 8) ? Math.pow(2, -exponent) : 1;
@@ -0,0 +1,248 @@
+package io.lacuna.artifex.utils;
+
+import io.lacuna.artifex.Box2;
+import io.lacuna.artifex.Curve2;
+import io.lacuna.artifex.Region2;
+import io.lacuna.artifex.Ring2;
+import io.lacuna.artifex.Ring2.Result;
+
+import java.util.Arrays;
+
+import static io.lacuna.artifex.utils.Intersections.SPATIAL_EPSILON;
+
+/**
+ * Tests many points against a region in a single pass.  Rather than casting a ray from each point against every curve
+ * in the region, the points are sorted by their y-coordinate, and swept upwards alongside the curves, so that each
+ * point is only tested against the curves which span its y-coordinate.
+ * <p>
+ * The results of {@link #test(double[], double[])} are identical to calling {@link Region2#test(io.lacuna.artifex.Vec2)}
+ * on each point.
+ *
+ * @author ztellman
+ */
+public class Scanline {
+
+  // how many points are tested between checks of the deadline, which must be a power of two
+  private static final int CHECK_INTERVAL = 1024;
+
+  private final Region2 region;
+
+  // every curve in the region, along with the ring it belongs to and its index within that ring
+  private final Curve2[] curves;
+  private final int[] rings, indices;
+
+  // the bounds of each ring, and the end of the rays we cast against it
+  private final Box2[] bounds;
+  private final double[] limits;
+
+  public Scanline(Region2 region) {
+    this.region = region;
+
+    int n = 0;
+    for (Ring2 r : region.rings) {
+      n += r.curves.length;
+    }
+
+    curves = new Curve2[n];
+    rings = new int[n];
+    indices = new int[n];
+    bounds = new Box2[region.rings.length];
+    limits = new double[region.rings.length];
+
+    for (int i = 0, idx = 0; i < region.rings.length; i++) {
+      Ring2 r = region.rings[i];
+      bounds[i] = r.bounds.expand(SPATIAL_EPSILON);
+      limits[i] = r.bounds.ux + 1;
+      for (int j = 0; j < r.curves.length; j++) {
+        curves[idx] = r.curves[j];
+        rings[idx] = i;
+        indices[idx] = j;
+        idx++;
+      }
+    }
+  }
+
+  /**
+   * Invoked with each point, in ascending order of y-coordinate, once every curve which spans the point's y-coordinate
+   * is within {@code events}.
+   */
+  private interface Visitor {
+    void visit(int idx, double x, double y, SweepEvents events);
+  }
+
+  /**
+   * @return the result of testing each point {@code (xs[i], ys[i])} against the region
+   */
+  public Result[] test(double[] xs, double[] ys) {
+    return test(xs, ys, Deadline.NONE);
+  }
+
+  /**
+   * Same as {@link #test(double[], double[])}, but periodically checks {@code deadline}.
+   */
+  public Result[] test(double[] xs, double[] ys, Deadline deadline) {
+    Result[] results = new Result[xs.length];
+    RingTest test = new RingTest();
+    sweep(xs, ys, deadline, (i, x, y, events) -> {
+      int ring = test.ring(i, x, y, events);
+      if (ring < 0) {
+        results[i] = Result.OUTSIDE;
+      } else if (test.edges[ring] != Integer.MAX_VALUE) {
+        results[i] = new Result(region.rings[ring].curves[test.edges[ring]]);
+      } else {
+        results[i] = region.rings[ring].isClockwise ? Result.OUTSIDE : Result.INSIDE;
+      }
+    });
+    return results;
+  }
+
+  /**
+   * Sets {@code out[i]} to whether the point {@code (xs[i], ys[i])} is contained by the region, which is identical to
+   * calling {@link Region2#contains(io.lacuna.artifex.Vec2)} on each point.
+   */
+  public void contains(double[] xs, double[] ys, boolean[] out) {
+    contains(xs, ys, out, Deadline.NONE);
+  }
+
+  /**
+   * Same as {@link #contains(double[], double[], boolean[])}, but periodically checks {@code deadline}.
+   */
+  public void contains(double[] xs, double[] ys, boolean[] out, Deadline deadline) {
+    RingTest test = new RingTest();
+    sweep(xs, ys, deadline, (i, x, y, events) -> {
+      int ring = test.ring(i, x, y, events);
+      out[i] = ring >= 0 && (test.edges[ring] != Integer.MAX_VALUE || !region.rings[ring].isClockwise);
+    });
+  }
+
+  /**
+   * Sets {@code out[i]} to the winding number of the region around the point {@code (xs[i], ys[i])}, which is the sum
+   * of the winding numbers of each ring: 1 within a counter-clockwise ring, -1 within a clockwise ring, and 0 outside.
+   * If the point lies on one of the region's curves, {@code out[i]} is set to {@link Crossings#EDGE}.
+   */
+  public void windings(double[] xs, double[] ys, int[] out) {
+    windings(xs, ys, out, Deadline.NONE);
+  }
+
+  /**
+   * Same as {@link #windings(double[], double[], int[])}, but periodically checks {@code deadline}.
+   */
+  public void windings(double[] xs, double[] ys, int[] out, Deadline deadline) {
+    sweep(xs, ys, deadline, (i, x, y, events) -> {
+      int winding = 0;
+      for (int a = 0; a < events.activeCount(); a++) {
+        int c = events.active(a);
+        int r = rings[c];
+        if (!bounds[r].contains(x, y)) {
+          continue;
+        }
+
+        int crossing = Crossings.crossing(curves[c], x, y, limits[r]);
+        if (crossing == Crossings.EDGE) {
+          winding = Crossings.EDGE;
+          break;
+        }
+        winding += crossing;
+      }
+      out[i] = winding;
+    });
+  }
+
+  /**
+   * Sorts the points by their y-coordinate, and visits each alongside the curves which span it.
+   */
+  private void sweep(double[] xs, double[] ys, Deadline deadline, Visitor visitor) {
+    int n = xs.length;
+    if (ys.length != n) {
+      throw new IllegalArgumentException("coordinate arrays must have the same length: " + n + " != " + ys.length);
+    }
+
+    // a point can only cross curves which span its y-coordinate
+    double[] lo = new double[curves.length];
+    double[] hi = new double[curves.length];
+    for (int i = 0; i < curves.length; i++) {
+      Box2 b = curves[i].bounds();
+      lo[i] = b.ly;
+      hi[i] = b.uy;
+    }
+    SweepEvents events = new SweepEvents(lo, hi);
+
+    double[] keys = ys.clone();
+    int[] order = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    Sorts.sort(keys, order);
+
+    for (int k = 0; k < n; k++) {
+      if ((k & CHECK_INTERVAL - 1) == 0) {
+        int tested = k;
+        deadline.check("classify", () -> tested + " of " + n + " points tested");
+      }
+
+      int i = order[k];
+      events.advance(ys[i]);
+      visitor.visit(i, xs[i], ys[i], events);
+    }
+  }
+
+  /**
+   * Replicates {@link Region2#test(io.lacuna.artifex.Vec2)}, where the first ring which contains the point decides the
+   * result.
+   */
+  private class RingTest {
+
+    // whether there are an odd number of crossings for each ring, the earliest curve within the ring which the point
+    // lies on, and the last point which touched the ring, so that these are only reset as needed
+    final boolean[] odd = new boolean[region.rings.length];
+    final int[] edges = new int[region.rings.length];
+    final int[] touched = new int[region.rings.length];
+    final int[] seen = new int[region.rings.length];
+
+    RingTest() {
+      Arrays.fill(seen, -1);
+    }
+
+    /**
+     * @return the smallest ring which contains the point, or {@code -1} if there isn't one
+     */
+    int ring(int idx, double x, double y, SweepEvents events) {
+      int touchedCount = 0;
+      for (int a = 0; a < events.activeCount(); a++) {
+        int c = events.active(a);
+        int r = rings[c];
+        if (!bounds[r].contains(x, y)) {
+          continue;
+        }
+
+        int crossing = Crossings.crossing(curves[c], x, y, limits[r]);
+        if (crossing == 0) {
+          continue;
+        }
+
+        if (seen[r] != idx) {
+          seen[r] = idx;
+          odd[r] = false;
+          edges[r] = Integer.MAX_VALUE;
+          touched[touchedCount++] = r;
+        }
+        if (crossing == Crossings.EDGE) {
+          edges[r] = Math.min(edges[r], indices[c]);
+        } else {
+          odd[r] = !odd[r];
+        }
+      }
+
+      // as with `Region2.test`, the smallest ring which contains the point decides the result
+      int ring = Integer.MAX_VALUE;
+      for (int t = 0; t < touchedCount; t++) {
+        int r = touched[t];
+        if (odd[r] || edges[r] != Integer.MAX_VALUE) {
+          ring = Math.min(ring, r);
+        }
+      }
+
+      return ring == Integer.MAX_VALUE ? -1 : ring;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package io.lacuna.artifex.utils;
+
+/**
+ * Sorting over parallel primitive arrays, which avoids boxing the keys or the values they're associated with.
+ *
+ * @author ztellman
+ */
+public class Sorts {
+
+  private static final int INSERTION_THRESHOLD = 16;
+
+  private static void swap(double[] keys, int[] values, int i, int j) {
+    double k = keys[i];
+    keys[i] = keys[j];
+    keys[j] = k;
+
+    int v = values[i];
+    values[i] = values[j];
+    values[j] = v;
+  }
+
+  private static void insertionSort(double[] keys, int[] values, int from, int to) {
+    for (int i = from + 1; i < to; i++) {
+      for (int j = i; j > from && keys[j] < keys[j - 1]; j--) {
+        swap(keys, values, j, j - 1);
+      }
+    }
+  }
+
+  /**
+   * Sorts {@code keys} within [from, to) in ascending order, reordering {@code values} in lockstep.  This is not a
+   * stable sort.
+   */
+  public static void sort(double[] keys, int[] values, int from, int to) {
+    while (to - from > INSERTION_THRESHOLD) {
+
+      // median of three
+      int mid = (from + to) >>> 1, last = to - 1;
+      if (keys[mid] < keys[from]) swap(keys, values, mid, from);
+      if (keys[last] < keys[from]) swap(keys, values, last, from);
+      if (keys[last] < keys[mid]) swap(keys, values, last, mid);
+      double pivot = keys[mid];
+
+      int i = from, j = last;
+      while (i <= j) {
+        while (keys[i] < pivot) i++;
+        while (keys[j] > pivot) j--;
+        if (i <= j) {
+          swap(keys, values, i++, j--);
+        }
+      }
+
+      // recur on the smaller partition, loop on the larger
+      if (j - from < to - i) {
+        sort(keys, values, from, j + 1);
+        from = i;
+      } else {
+        sort(keys, values, i, to);
+        to = j + 1;
+      }
+    }
+
+    insertionSort(keys, values, from, to);
+  }
+
+  public static void sort(double[] keys, int[] values) {
+    sort(keys, values, 0, keys.length);
+  }
+}
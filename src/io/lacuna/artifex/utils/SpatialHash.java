@@ -0,0 +1,125 @@
+package io.lacuna.artifex.utils;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid of points, whose cells are twice as wide as the tolerance used for lookups, so that the points within
+ * that tolerance of a query usually lie within four cells, and never more than nine.  Points are assigned sequential
+ * ids as they're added.  Cells are hashed into a table of chained buckets, so only occupied cells take up space, and
+ * two cells which share a bucket only cost an extra comparison.
+ *
+ * @author ztellman
+ */
+public class SpatialHash {
+
+  private final double epsilon, inverseCellSize;
+
+  private double[] xs = new double[16], ys = new double[16];
+  private int[] next = new int[16];
+  private int[] buckets = empty(32);
+  private int size = 0;
+
+  /**
+   * @param epsilon the maximum distance along either axis at which a point will be found by {@link #get(double, double)}
+   */
+  public SpatialHash(double epsilon) {
+    this.epsilon = epsilon;
+    this.inverseCellSize = 1 / (epsilon * 2);
+  }
+
+  private static int[] empty(int n) {
+    int[] buckets = new int[n];
+    Arrays.fill(buckets, -1);
+    return buckets;
+  }
+
+  private long cell(double n) {
+    // this only needs to be monotonic, so we multiply rather than divide
+    return (long) Math.floor(n * inverseCellSize);
+  }
+
+  private static int cells(long lo, long hi) {
+    return (int) Math.max(0, Math.min(2, hi - lo)) + 1;
+  }
+
+  private int bucket(long cx, long cy) {
+    long hash = (cx * 31) + cy;
+    hash ^= hash >>> 32;
+    hash *= 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> 32) & (buckets.length - 1);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public double x(int i) {
+    return xs[i];
+  }
+
+  public double y(int i) {
+    return ys[i];
+  }
+
+  /**
+   * @return the id of the first point added within {@code epsilon} of {@code (x, y)} along both axes, or -1 if there
+   * is none
+   */
+  public int get(double x, double y) {
+
+    // if a point was added exactly here, it's the only point within epsilon, since any later point within epsilon of
+    // it would have been found rather than added
+    for (int k = buckets[bucket(cell(x), cell(y))]; k >= 0; k = next[k]) {
+      if (xs[k] == x && ys[k] == y) {
+        return k;
+      }
+    }
+
+    // the tolerance spans at most three cells along each axis, but far enough from the origin the cells saturate at the
+    // bounds of a long, so we count the cells rather than comparing against the upper bound, which may not be reachable
+    long lx = cell(x - epsilon), ly = cell(y - epsilon);
+    int nx = cells(lx, cell(x + epsilon));
+    int ny = cells(ly, cell(y + epsilon));
+    int result = -1;
+    for (int i = 0; i < nx; i++) {
+      for (int j = 0; j < ny; j++) {
+        for (int k = buckets[bucket(lx + i, ly + j)]; k >= 0; k = next[k]) {
+          if ((result < 0 || k < result) && Math.abs(xs[k] - x) <= epsilon && Math.abs(ys[k] - y) <= epsilon) {
+            result = k;
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds the point, which should only be done if {@link #get(double, double)} doesn't find an existing point nearby.
+   *
+   * @return the id of the new point
+   */
+  public int add(double x, double y) {
+    if (size == xs.length) {
+      xs = Arrays.copyOf(xs, size << 1);
+      ys = Arrays.copyOf(ys, size << 1);
+      next = Arrays.copyOf(next, size << 1);
+
+      // keep the load factor at or below 1/2
+      buckets = empty(buckets.length << 1);
+      for (int i = 0; i < size; i++) {
+        link(i);
+      }
+    }
+
+    xs[size] = x;
+    ys[size] = y;
+    link(size);
+    return size++;
+  }
+
+  private void link(int i) {
+    int b = bucket(cell(xs[i]), cell(ys[i]));
+    next[i] = buckets[b];
+    buckets[b] = i;
+  }
+}
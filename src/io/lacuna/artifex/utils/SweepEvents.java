@@ -0,0 +1,166 @@
+package io.lacuna.artifex.utils;
+
+import static io.lacuna.artifex.utils.Scalars.EPSILON;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A bulk-loaded equivalent of {@link SweepQueue}, for when every interval is known before the sweep begins.  Rather
+ * than boxing each event within a priority queue, the open and close keys are held in primitive arrays, sorted once,
+ * and walked with a cursor.  Values are referred to by their index in the arrays passed to the constructor.
+ * <p>
+ * As with {@link SweepQueue}, an event which opens an interval precedes one that closes an interval at the same key.
+ *
+ * @author ztellman
+ */
+public class SweepEvents {
+
+  private final double[] openKeys, closeKeys;
+  private final int[] opens, closes;
+  private int openCursor, closeCursor;
+
+  // the active indices, and where each index sits within them
+  private final int[] active, positions;
+  private int size;
+
+  /**
+   * @param a one end of each interval
+   * @param b the other end of each interval
+   */
+  public SweepEvents(double[] a, double[] b) {
+    int n = a.length;
+
+    openKeys = new double[n];
+    closeKeys = new double[n];
+    opens = new int[n];
+    closes = new int[n];
+    for (int i = 0; i < n; i++) {
+      openKeys[i] = min(a[i], b[i]) - EPSILON;
+      closeKeys[i] = max(a[i], b[i]) + EPSILON;
+      opens[i] = i;
+      closes[i] = i;
+    }
+    Sorts.sort(openKeys, opens);
+    Sorts.sort(closeKeys, closes);
+
+    active = new int[n];
+    positions = new int[n];
+  }
+
+  private boolean opensNext() {
+    return openCursor < opens.length
+      && (closeCursor == closes.length || openKeys[openCursor] <= closeKeys[closeCursor]);
+  }
+
+  private boolean isEmpty() {
+    return openCursor == opens.length && closeCursor == closes.length;
+  }
+
+  /**
+   * @return the key of the next event, or {@code Double.MAX_VALUE} if there are none
+   */
+  public double peek() {
+    if (isEmpty()) {
+      return Double.MAX_VALUE;
+    }
+    return opensNext() ? openKeys[openCursor] : closeKeys[closeCursor];
+  }
+
+  /**
+   * @return negative if {@code a} has an earlier next event than {@code b}, positive if later, and zero otherwise
+   */
+  private static int compare(SweepEvents a, SweepEvents b) {
+    int cmp = Double.compare(a.peek(), b.peek());
+    if (cmp == 0) {
+      return (a.opensNext() ? SweepQueue.OPEN : SweepQueue.CLOSED) - (b.opensNext() ? SweepQueue.OPEN : SweepQueue.CLOSED);
+    }
+    return cmp;
+  }
+
+  /**
+   * Consumes every close event which precedes the next open event across {@code queues}.
+   *
+   * @return the index of the queue with the next open event, or of an empty queue if there are none
+   */
+  public static int next(SweepEvents... queues) {
+    for (; ; ) {
+      int minIdx = 0;
+      for (int i = 1; i < queues.length; i++) {
+        if (queues[minIdx].isEmpty() || (!queues[i].isEmpty() && compare(queues[i], queues[minIdx]) < 0)) {
+          minIdx = i;
+        }
+      }
+
+      SweepEvents q = queues[minIdx];
+      if (q.isEmpty() || q.opensNext()) {
+        return minIdx;
+      } else {
+        q.close();
+      }
+    }
+  }
+
+  private int open() {
+    int idx = opens[openCursor++];
+    positions[idx] = size;
+    active[size++] = idx;
+    return idx;
+  }
+
+  private void close() {
+    int idx = closes[closeCursor++];
+    int pos = positions[idx];
+    int last = active[--size];
+    active[pos] = last;
+    positions[last] = pos;
+  }
+
+  /**
+   * Consumes events up to and including the next open event.
+   *
+   * @return the index of the opened value, or -1 if there are no more
+   */
+  public int take() {
+    while (!isEmpty()) {
+      if (opensNext()) {
+        return open();
+      }
+      close();
+    }
+    return -1;
+  }
+
+  /**
+   * Consumes every event before {@code key}, and every open event at {@code key}, so that the active values are exactly
+   * those whose intervals contain {@code key}.  Keys passed to successive calls must not decrease.
+   */
+  public void advance(double key) {
+    while (!isEmpty()) {
+      if (opensNext()) {
+        if (openKeys[openCursor] > key) {
+          break;
+        }
+        open();
+      } else {
+        if (closeKeys[closeCursor] >= key) {
+          break;
+        }
+        close();
+      }
+    }
+  }
+
+  /**
+   * @return the number of values whose intervals are currently open
+   */
+  public int activeCount() {
+    return size;
+  }
+
+  /**
+   * @return the index of the {@code i}th open value
+   */
+  public int active(int i) {
+    return active[i];
+  }
+}
@@ -0,0 +1,621 @@
+package io.lacuna.artifex.utils;
+
+import io.lacuna.artifex.Bezier2.CubicBezier2;
+import io.lacuna.artifex.Bezier2.QuadraticBezier2;
+import io.lacuna.artifex.Curve2;
+import io.lacuna.artifex.Line2;
+import io.lacuna.artifex.Vec2;
+import io.lacuna.artifex.utils.Intersections.IntersectionSink;
+import io.lacuna.bifurcan.IList;
+import io.lacuna.bifurcan.LinearList;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import static io.lacuna.artifex.utils.Intersections.PARAMETRIC_EPSILON;
+import static io.lacuna.artifex.utils.Intersections.SPATIAL_EPSILON;
+
+/**
+ * An implementation of the Bentley-Ottmann plane sweep, which finds the intersections between two sets of curves.
+ * Unlike {@link SweepQueue} and {@link Intersections#intersectAll(Curve2[], Curve2[], IntersectionSink)}, which compare
+ * each curve against every other curve which overlaps it on the x-axis, this keeps the active curves in a balanced tree
+ * ordered by their y-coordinate at the sweep position, and only compares curves which are adjacent in that ordering.
+ * When two curves are found to cross, they are reinserted into the tree at the crossing, so that they're compared
+ * against their new neighbors.
+ * <p>
+ * This makes the sweep O((N + K) log N) rather than O(N ^ 2), but each comparison is more expensive, so it's only
+ * worthwhile when many curves overlap on the x-axis, such as long horizontal bands.  Curves must be monotonic in x and
+ * y, and curves in the same set which share an endpoint are assumed to only meet there, as they are within a {@link
+ * io.lacuna.artifex.Ring2}.  Vertical curves are never added to the tree, and are instead compared against every active
+ * curve within their y-extent.
+ *
+ * @author ztellman
+ */
+public class SweepLine {
+
+  private static final int INSERT = 0, VERTICAL = 1, REINSERT = 2, REMOVE = 3;
+
+  private static class Node {
+    final Curve2 curve;
+    final int group, index, id, priority;
+    final Vec2 start, end;
+    final double lx, ux, ly, uy;
+    final boolean reversed;
+
+    // the treap
+    Node parent, left, right;
+    boolean active;
+
+    // the position and tangent at the last point where the curve was evaluated
+    double x = Double.NaN, y, dx, dy;
+
+    Node(Curve2 curve, int group, int index, int id) {
+      this.curve = curve;
+      this.group = group;
+      this.index = index;
+      this.id = id;
+      this.priority = mix(id);
+
+      this.start = curve.start();
+      this.end = curve.end();
+
+      double x0 = start.x, x1 = end.x;
+      this.reversed = x1 < x0;
+      this.lx = Math.min(x0, x1);
+      this.ux = Math.max(x0, x1);
+      this.ly = curve.bounds().ly;
+      this.uy = curve.bounds().uy;
+    }
+
+    boolean isVertical() {
+      return ux - lx <= SPATIAL_EPSILON;
+    }
+  }
+
+  private static class Event {
+    static final Comparator<Event> COMPARATOR = (a, b) -> {
+      int cmp = Double.compare(a.x, b.x);
+      return cmp != 0 ? cmp : a.type - b.type;
+    };
+
+    final double x;
+    final int type;
+    final Node a, b;
+
+    Event(double x, int type, Node a, Node b) {
+      this.x = x;
+      this.type = type;
+      this.a = a;
+      this.b = b;
+    }
+  }
+
+  private final Node[] nodes;
+  private final int aSize;
+  private final IntersectionSink sink;
+
+  private final PriorityQueue<Event> events = new PriorityQueue<>(Event.COMPARATOR);
+
+  private final ArrayDeque<Node> verticals = new ArrayDeque<>();
+  private final DoubleAccumulator acc = new DoubleAccumulator();
+
+  // the pairs which have been compared, as an open-addressed set of keys, where -1 marks an empty slot
+  private long[] tested = emptyKeys(64);
+  private int testedCount = 0;
+
+  private Node root;
+  private double sweep;
+
+  private SweepLine(Curve2[] as, Curve2[] bs, IntersectionSink sink) {
+    this.sink = sink;
+    this.aSize = as.length;
+    this.nodes = new Node[as.length + bs.length];
+    for (int i = 0; i < as.length; i++) {
+      nodes[i] = new Node(as[i], 0, i, i);
+    }
+    for (int i = 0; i < bs.length; i++) {
+      nodes[aSize + i] = new Node(bs[i], 1, i, aSize + i);
+    }
+  }
+
+  /**
+   * Invokes {@code sink} for every point of intersection between a curve in {@code as} and a curve in {@code bs}.  This
+   * is equivalent to {@link Intersections#intersectAll(Curve2[], Curve2[], IntersectionSink)}, except that the order in
+   * which intersections are reported is different.
+   */
+  public static void intersections(Curve2[] as, Curve2[] bs, IntersectionSink sink) {
+    new SweepLine(as, bs, sink).sweep();
+  }
+
+  private void sweep() {
+    for (Node n : nodes) {
+      if (n.isVertical()) {
+        events.add(new Event((n.lx + n.ux) / 2, VERTICAL, n, null));
+      } else {
+        events.add(new Event(n.lx - SPATIAL_EPSILON, INSERT, n, null));
+        events.add(new Event(n.ux + SPATIAL_EPSILON, REMOVE, n, null));
+      }
+    }
+
+    while (!events.isEmpty()) {
+      Event e = events.poll();
+      sweep = e.x;
+
+      switch (e.type) {
+        case INSERT:
+          insert(e.a);
+          break;
+
+        case VERTICAL:
+          vertical(e.a);
+          break;
+
+        case REINSERT:
+          if (e.a.active && e.b.active) {
+            reinsert(e.a, e.b);
+          }
+          break;
+
+        case REMOVE:
+          // curves which end at the same point may never have been adjacent, so compare against everything which
+          // meets this curve at its endpoint
+          testNeighbors(e.a, false);
+          testNeighbors(e.a, true);
+          remove(e.a);
+          break;
+      }
+    }
+  }
+
+  /// comparisons
+
+  /**
+   * @return the parameter where the node's curve has the x-coordinate {@code x}, which is clamped to the curve's extent
+   */
+  private static double parameter(Node n, double x) {
+    x = Math.max(n.lx, Math.min(n.ux, x));
+    Curve2 c = n.curve;
+    double t;
+    if (c instanceof Line2) {
+      Line2 l = (Line2) c;
+      return Scalars.normalize(l.ax, l.bx, x);
+    } else if (c instanceof QuadraticBezier2) {
+      QuadraticBezier2 q = (QuadraticBezier2) c;
+      t = Crossings.bracket(q.p0.x, q.p1.x, q.p2.x, Double.NaN, x);
+    } else {
+      CubicBezier2 q = (CubicBezier2) c;
+      t = Crossings.bracket(q.p0.x, q.p1.x, q.p2.x, q.p3.x, x);
+    }
+
+    // if the endpoints don't bracket x, the curve isn't quite monotonic, so use whichever endpoint is closest
+    if (Double.isNaN(t)) {
+      return Math.abs(x - (n.reversed ? n.ux : n.lx)) < Math.abs(x - (n.reversed ? n.lx : n.ux)) ? 0 : 1;
+    }
+    return t;
+  }
+
+  private static double y(Curve2 c, double t) {
+    if (c instanceof Line2) {
+      Line2 l = (Line2) c;
+      return Scalars.lerp(l.ay, l.by, t);
+    } else if (c instanceof QuadraticBezier2) {
+      QuadraticBezier2 q = (QuadraticBezier2) c;
+      return Crossings.quadratic(q.p0.y, q.p1.y, q.p2.y, t);
+    } else {
+      CubicBezier2 q = (CubicBezier2) c;
+      return Crossings.cubic(q.p0.y, q.p1.y, q.p2.y, q.p3.y, t);
+    }
+  }
+
+  private static double y(Node n, double x) {
+    return y(n.curve, parameter(n, x));
+  }
+
+  /**
+   * Updates the position and tangent of the node's curve at the current sweep position.
+   */
+  private void evaluate(Node n) {
+    if (n.x == sweep) {
+      return;
+    }
+    n.x = sweep;
+
+    double t = parameter(n, sweep);
+    Curve2 c = n.curve;
+    n.y = y(c, t);
+    if (c instanceof Line2) {
+      Line2 l = (Line2) c;
+      n.dx = l.bx - l.ax;
+      n.dy = l.by - l.ay;
+    } else if (c instanceof QuadraticBezier2) {
+      QuadraticBezier2 q = (QuadraticBezier2) c;
+      n.dx = Crossings.quadraticDerivative(q.p0.x, q.p1.x, q.p2.x, t);
+      n.dy = Crossings.quadraticDerivative(q.p0.y, q.p1.y, q.p2.y, t);
+    } else {
+      CubicBezier2 q = (CubicBezier2) c;
+      n.dx = Crossings.cubicDerivative(q.p0.x, q.p1.x, q.p2.x, q.p3.x, t);
+      n.dy = Crossings.cubicDerivative(q.p0.y, q.p1.y, q.p2.y, q.p3.y, t);
+    }
+
+    // orient the tangent so that it points towards +x, which we can't infer from the tangent itself if it's vertical,
+    // and then normalize it
+    double len = Math.sqrt((n.dx * n.dx) + (n.dy * n.dy));
+    if (n.reversed) {
+      len = -len;
+    }
+    n.dx /= len;
+    n.dy /= len;
+  }
+
+  /**
+   * The distance in y within which two curves are considered to meet at the sweep position.  Since curves are inserted
+   * and removed a small distance away from their endpoints, and a tiny error in the x-coordinate of a crossing becomes
+   * a much larger error in y where a curve is steep, this grows with the slope.
+   */
+  private static double tolerance(Node a, Node b) {
+    double slope = Math.max(Math.abs(a.dy / a.dx), Math.abs(b.dy / b.dx));
+    return Math.min(PARAMETRIC_EPSILON, 2 * SPATIAL_EPSILON * (1 + slope));
+  }
+
+  private boolean isTied(Node a, Node b) {
+    evaluate(a);
+    evaluate(b);
+    return Math.abs(a.y - b.y) <= tolerance(a, b);
+  }
+
+  /**
+   * Orders curves by their y-coordinate at the sweep position, and if they meet at the sweep position, by where they're
+   * heading.
+   */
+  private int compare(Node a, Node b) {
+    if (a == b) {
+      return 0;
+    }
+
+    evaluate(a);
+    evaluate(b);
+    double epsilon = tolerance(a, b);
+    if (a.y < b.y - epsilon) {
+      return -1;
+    } else if (a.y > b.y + epsilon) {
+      return 1;
+    }
+
+    // since the tangents point towards +x, their angle increases monotonically with dy
+    if (a.dy < b.dy - SPATIAL_EPSILON) {
+      return -1;
+    } else if (a.dy > b.dy + SPATIAL_EPSILON) {
+      return 1;
+    }
+
+    // they're heading in the same direction, so see where they are further along
+    double x = sweep + ((Math.min(a.ux, b.ux) - sweep) / 2);
+    double ya = y(a, x), yb = y(b, x);
+    if (ya < yb - SPATIAL_EPSILON) {
+      return -1;
+    } else if (ya > yb + SPATIAL_EPSILON) {
+      return 1;
+    }
+
+    return a.id - b.id;
+  }
+
+  /// tests
+
+  private static long[] emptyKeys(int n) {
+    long[] keys = new long[n];
+    Arrays.fill(keys, -1);
+    return keys;
+  }
+
+  private static int slot(long key, int mask) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> 32) & mask;
+  }
+
+  /**
+   * @return true if {@code key} wasn't already in {@code tested}, in which case it's been added
+   */
+  private boolean markTested(long key) {
+    int mask = tested.length - 1;
+    int i = slot(key, mask);
+    for (; tested[i] >= 0; i = (i + 1) & mask) {
+      if (tested[i] == key) {
+        return false;
+      }
+    }
+    tested[i] = key;
+
+    // keep the load factor at or below 1/2
+    if (++testedCount << 1 > tested.length) {
+      long[] prev = tested;
+      tested = emptyKeys(prev.length << 1);
+      mask = tested.length - 1;
+      for (long k : prev) {
+        if (k >= 0) {
+          int j = slot(k, mask);
+          while (tested[j] >= 0) {
+            j = (j + 1) & mask;
+          }
+          tested[j] = k;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Compares two curves, if they haven't already been compared.  Curves from different sets have their intersections
+   * reported, and any crossings which lie ahead of the sweep cause both curves to be reinserted at that point.
+   */
+  private void test(Node a, Node b) {
+    if (a.id > b.id) {
+      Node tmp = a;
+      a = b;
+      b = tmp;
+    }
+
+    if (!markTested(((long) a.id * nodes.length) + b.id)) {
+      return;
+    }
+
+    // consecutive curves in a ring only meet at their shared endpoint, and are nearly tangent there, which is the most
+    // expensive case for the narrow phase, so we don't bother
+    if (a.group == b.group && (a.end.equals(b.start) || b.end.equals(a.start))) {
+      return;
+    }
+
+    acc.clear();
+    int n = Intersections.intersections(a.curve, b.curve, acc);
+    for (int i = 0; i < n; i++) {
+      double s = acc.get(i * 2);
+      double t = acc.get(i * 2 + 1);
+      if (a.group != b.group) {
+        sink.intersection(a.index, b.index, s, t);
+      }
+
+      double x = a.curve.position(s).x;
+      if (a.active && b.active
+        && x > sweep + SPATIAL_EPSILON
+        && x < Math.min(a.ux, b.ux) - SPATIAL_EPSILON) {
+        events.add(new Event(x, REINSERT, a, b));
+      }
+    }
+  }
+
+  /**
+   * Compares {@code n} against each neighbor in the given direction which ties with it at the sweep position, and then
+   * the first neighbor which doesn't, along with anything which ties with that neighbor, since shared edges mean there
+   * are often several curves in the same place.
+   */
+  private void testNeighbors(Node n, boolean ascending) {
+    Node m = ascending ? next(n) : prev(n);
+    for (; m != null; m = ascending ? next(m) : prev(m)) {
+      test(n, m);
+      if (!isTied(n, m)) {
+        break;
+      }
+    }
+
+    if (m != null) {
+      for (Node o = ascending ? next(m) : prev(m); o != null && isTied(m, o); o = ascending ? next(o) : prev(o)) {
+        test(n, o);
+      }
+    }
+  }
+
+  /**
+   * Reinserts every curve which passes through the crossing of {@code a} and {@code b}, not just the two curves, since
+   * the curves which meet at a point may not have been adjacent before it, and all of their orderings are reversed.
+   */
+  private void reinsert(Node a, Node b) {
+    Node first = a;
+    for (Node n = prev(a); n != null && isTied(a, n); n = prev(n)) {
+      first = n;
+    }
+
+    IList<Node> crossing = new LinearList<>();
+    for (Node n = first; n != null && (n == first || isTied(a, n)); n = next(n)) {
+      crossing.addLast(n);
+    }
+    if (!isTied(a, b)) {
+      crossing.addLast(b);
+    }
+
+    for (Node n : crossing) {
+      remove(n);
+    }
+    for (Node n : crossing) {
+      insert(n);
+    }
+  }
+
+  private void vertical(Node v) {
+    if (!verticals.isEmpty()) {
+      // only keep the verticals which share an x-coordinate with this one
+      while (!verticals.isEmpty() && verticals.peekFirst().ux < v.lx - SPATIAL_EPSILON) {
+        verticals.removeFirst();
+      }
+      for (Node u : verticals) {
+        if (u.group != v.group && u.ly <= v.uy + SPATIAL_EPSILON && v.ly <= u.uy + SPATIAL_EPSILON) {
+          test(u, v);
+        }
+      }
+    }
+    verticals.addLast(v);
+
+    // since every curve is monotonic, the range of each curve's y-coordinates across the width of the vertical curve is
+    // given by its endpoints, which can be much larger than the vertical curve when it's steep
+    double x0 = v.lx - SPATIAL_EPSILON, x1 = v.ux + SPATIAL_EPSILON;
+
+    Node start = ceiling(v.ly - SPATIAL_EPSILON);
+    for (Node n = start == null ? null : prev(start); n != null; n = prev(n)) {
+      if (Math.max(y(n, x0), y(n, x1)) < v.ly - SPATIAL_EPSILON) {
+        break;
+      } else if (n.group != v.group) {
+        test(n, v);
+      }
+    }
+
+    for (Node n = start; n != null; n = next(n)) {
+      if (Math.min(y(n, x0), y(n, x1)) > v.uy + SPATIAL_EPSILON) {
+        break;
+      } else if (n.group != v.group) {
+        test(n, v);
+      }
+    }
+  }
+
+  /// the treap
+
+  private static int mix(int n) {
+    long h = n * 0x9E3779B97F4A7C15L;
+    h ^= h >>> 32;
+    return (int) h;
+  }
+
+  private void insert(Node n) {
+    n.left = n.right = n.parent = null;
+    n.active = true;
+
+    if (root == null) {
+      root = n;
+    } else {
+      Node curr = root;
+      for (; ; ) {
+        if (compare(n, curr) < 0) {
+          if (curr.left == null) {
+            curr.left = n;
+            break;
+          }
+          curr = curr.left;
+        } else {
+          if (curr.right == null) {
+            curr.right = n;
+            break;
+          }
+          curr = curr.right;
+        }
+      }
+      n.parent = curr;
+
+      while (n.parent != null && n.parent.priority < n.priority) {
+        rotateUp(n);
+      }
+    }
+
+    testNeighbors(n, false);
+    testNeighbors(n, true);
+  }
+
+  private void remove(Node n) {
+    if (!n.active) {
+      return;
+    }
+    n.active = false;
+
+    Node prev = prev(n), next = next(n);
+
+    // rotate the node down until it's a leaf, and then detach it
+    while (n.left != null || n.right != null) {
+      if (n.right == null || (n.left != null && n.left.priority > n.right.priority)) {
+        rotateUp(n.left);
+      } else {
+        rotateUp(n.right);
+      }
+    }
+    replace(n, null);
+    n.parent = null;
+
+    if (prev != null && next != null) {
+      test(prev, next);
+    }
+  }
+
+  /**
+   * Rotates {@code n} above its parent, preserving the ordering of the tree.
+   */
+  private void rotateUp(Node n) {
+    Node p = n.parent;
+    replace(p, n);
+    if (p.left == n) {
+      p.left = n.right;
+      if (p.left != null) {
+        p.left.parent = p;
+      }
+      n.right = p;
+    } else {
+      p.right = n.left;
+      if (p.right != null) {
+        p.right.parent = p;
+      }
+      n.left = p;
+    }
+    p.parent = n;
+  }
+
+  /**
+   * Puts {@code m} in the position of {@code n} relative to {@code n}'s parent.
+   */
+  private void replace(Node n, Node m) {
+    Node p = n.parent;
+    if (p == null) {
+      root = m;
+    } else if (p.left == n) {
+      p.left = m;
+    } else {
+      p.right = m;
+    }
+    if (m != null) {
+      m.parent = p;
+    }
+  }
+
+  private static Node prev(Node n) {
+    if (n.left != null) {
+      n = n.left;
+      while (n.right != null) {
+        n = n.right;
+      }
+      return n;
+    }
+    while (n.parent != null && n.parent.left == n) {
+      n = n.parent;
+    }
+    return n.parent;
+  }
+
+  private static Node next(Node n) {
+    if (n.right != null) {
+      n = n.right;
+      while (n.left != null) {
+        n = n.left;
+      }
+      return n;
+    }
+    while (n.parent != null && n.parent.right == n) {
+      n = n.parent;
+    }
+    return n.parent;
+  }
+
+  /**
+   * @return the first node whose y-coordinate at the sweep position is at least {@code y}
+   */
+  private Node ceiling(double y) {
+    Node result = null;
+    for (Node curr = root; curr != null; ) {
+      evaluate(curr);
+      if (curr.y >= y) {
+        result = curr;
+        curr = curr.left;
+      } else {
+        curr = curr.right;
+      }
+    }
+    return result;
+  }
+}
@@ -12,7 +12,8 @@ import static java.lang.Math.*;
  * A quasi-implementation of the plane sweep algorithm.  This will only compare edges which overlap on the x-axis, but
  * does not maintain a sorted tree of the y-axis to ensure only adjacent curves have intersection checks.  This means
  * that this is worst-case O(N ^ 2) rather than O(N log N), but outside of heavy-duty GIS applications I'm not sure this
- * is a real problem.  This may be worth revisiting.
+ * is a real problem.  For those applications, {@link SweepLine} maintains the sorted tree, and when every interval is
+ * known up front, {@link SweepEvents} avoids the per-event allocation.
  *
  * @author ztellman
  */
@@ -0,0 +1,76 @@
+package io.lacuna.artifex.utils;
+
+import java.util.Arrays;
+
+/**
+ * A disjoint-set forest over integer ids, which are assigned sequentially by {@link #add()}.  Uses path compression
+ * and union by rank, so that any sequence of operations runs in near-linear time.
+ *
+ * @author ztellman
+ */
+public class UnionFind {
+
+  private int[] parent = new int[16];
+  private byte[] rank = new byte[16];
+  private int size = 0;
+
+  /**
+   * @return the id of a new singleton set
+   */
+  public int add() {
+    if (size == parent.length) {
+      parent = Arrays.copyOf(parent, size << 1);
+      rank = Arrays.copyOf(rank, size << 1);
+    }
+
+    parent[size] = size;
+    return size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the root of the set containing {@code i}
+   */
+  public int find(int i) {
+    int root = i;
+    while (parent[root] != root) {
+      root = parent[root];
+    }
+
+    // point everything along the path directly at the root
+    while (parent[i] != root) {
+      int next = parent[i];
+      parent[i] = root;
+      i = next;
+    }
+
+    return root;
+  }
+
+  /**
+   * Merges the sets containing {@code a} and {@code b}.
+   *
+   * @return the root of the merged set
+   */
+  public int union(int a, int b) {
+    a = find(a);
+    b = find(b);
+    if (a == b) {
+      return a;
+    }
+
+    if (rank[a] < rank[b]) {
+      parent[a] = b;
+      return b;
+    } else {
+      if (rank[a] == rank[b]) {
+        rank[a]++;
+      }
+      parent[b] = a;
+      return a;
+    }
+  }
+}
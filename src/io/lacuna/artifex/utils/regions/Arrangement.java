@@ -0,0 +1,106 @@
+package io.lacuna.artifex.utils.regions;
+
+import io.lacuna.artifex.Region2;
+import io.lacuna.artifex.Ring2;
+import io.lacuna.bifurcan.IList;
+import io.lacuna.bifurcan.LinearList;
+import io.lacuna.bifurcan.LinearSet;
+
+import static io.lacuna.artifex.utils.Intersections.SPATIAL_EPSILON;
+
+/**
+ * A region which is updated in place, for when many small shapes are added to or removed from a large region one at a
+ * time.  The region is kept as a set of noded rings, each of which is labeled by its orientation as either the outside
+ * of a filled area or a hole.
+ * <p>
+ * Since a ring can only be affected by a shape whose bounds it overlaps, each update only re-splits and re-classifies
+ * those rings, and every other ring is carried over as-is.  A hole's bounds lie within the bounds of the ring around it,
+ * so a hole is never updated without its surrounding ring, and if the surrounding ring is updated without the hole, the
+ * shape can't have touched the hole, which remains a hole within the updated ring.
+ * <p>
+ * This is not thread-safe.
+ *
+ * @author ztellman
+ */
+public class Arrangement {
+
+  private final LinearSet<Ring2> rings = new LinearSet<>();
+  private Region2 region = null;
+
+  public Arrangement() {
+  }
+
+  public Arrangement(Region2 region) {
+    add(region);
+  }
+
+  /**
+   * Adds the region, equivalent to {@link Region2#union(Region2)}.
+   */
+  public Arrangement add(Region2 region) {
+    return update(region, true);
+  }
+
+  /**
+   * Removes the region, equivalent to {@link Region2#difference(Region2)}.
+   */
+  public Arrangement remove(Region2 region) {
+    return update(region, false);
+  }
+
+  public Arrangement add(Ring2 ring) {
+    return add(ring.region());
+  }
+
+  public Arrangement remove(Ring2 ring) {
+    return remove(ring.region());
+  }
+
+  /**
+   * @return the current region, which is only constructed once between updates
+   */
+  public Region2 region() {
+    if (region == null) {
+      region = new Region2(rings);
+    }
+    return region;
+  }
+
+  /**
+   * @return the number of rings in the current region
+   */
+  public int size() {
+    return (int) rings.size();
+  }
+
+  private Arrangement update(Region2 shape, boolean union) {
+    if (shape.rings.length == 0) {
+      return this;
+    }
+
+    IList<Ring2> affected = new LinearList<>();
+    for (Ring2 r : rings) {
+      if (r.bounds.intersects(shape.bounds, SPATIAL_EPSILON)) {
+        affected.addLast(r);
+      }
+    }
+
+    // if nothing overlaps, there's nothing to remove from
+    if (affected.size() == 0 && !union) {
+      return this;
+    }
+
+    Region2 local = new Region2(affected);
+    Region2 result = union ? Clip.union(local, shape) : Clip.difference(local, shape);
+
+    for (Ring2 r : affected) {
+      rings.remove(r);
+    }
+    for (Ring2 r : result.rings) {
+      rings.add(r);
+    }
+    region = null;
+
+    return this;
+  }
+}
@@ -2,14 +2,28 @@ package io.lacuna.artifex.utils.regions;
 
 import io.lacuna.artifex.*;
 import io.lacuna.artifex.Ring2.Result;
+import io.lacuna.artifex.utils.Assignment;
 import io.lacuna.artifex.utils.Combinatorics;
+import io.lacuna.artifex.utils.Crossings;
+import io.lacuna.artifex.utils.Deadline;
+import io.lacuna.artifex.utils.Intersections;
+import io.lacuna.artifex.utils.RTree;
+import io.lacuna.artifex.utils.Scanline;
 import io.lacuna.artifex.utils.Scalars;
+import io.lacuna.artifex.utils.Sorts;
 import io.lacuna.bifurcan.*;
 
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
 import java.util.function.BinaryOperator;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
 
 import static java.lang.Math.abs;
@@ -80,6 +94,46 @@ public class Clip {
       throw new IllegalStateException();
     }
 
+    /**
+     * @return the curve at the same position as {@link #position(double)}
+     */
+    Curve2 curve(double t) {
+      double length = length(),
+        offset = 0,
+        threshold = length * t;
+
+      for (Curve2 c : this) {
+        double l = c.end().sub(c.start()).length();
+        Interval i = new Interval(offset, offset + l);
+        if (i.contains(threshold)) {
+          return c;
+        }
+        offset = i.hi;
+      }
+
+      throw new IllegalStateException();
+    }
+
+    /**
+     * @return the tangent at the same position as {@link #position(double)}
+     */
+    Vec2 direction(double t) {
+      double length = length(),
+        offset = 0,
+        threshold = length * t;
+
+      for (Curve2 c : this) {
+        double l = c.end().sub(c.start()).length();
+        Interval i = new Interval(offset, offset + l);
+        if (i.contains(threshold)) {
+          return tangent(c, i.normalize(threshold));
+        }
+        offset = i.hi;
+      }
+
+      throw new IllegalStateException();
+    }
+
     Arc reverse() {
       Arc result = new Arc();
       forEach(c -> result.addFirst(c.reverse()));
@@ -107,6 +161,22 @@ public class Clip {
     return abs(arcs.stream().mapToDouble(Arc::signedArea).sum());
   }
 
+  /**
+   * Same as {@link #area(IList)}, but measured relative to the first vertex rather than the origin, since far from the
+   * origin each curve's signed area is much larger than the area they enclose, which is lost when they're summed.
+   */
+  private static double localArea(IList<Arc> arcs) {
+    Vec2 o = arcs.first().head();
+    Matrix3 m = Matrix3.translate(-o.x, -o.y);
+    double area = 0;
+    for (Arc arc : arcs) {
+      for (Curve2 c : arc) {
+        area += c.transform(m).signedArea();
+      }
+    }
+    return abs(area);
+  }
+
   private static double length(IList<Arc> arcs) {
     return abs(arcs.stream().mapToDouble(Arc::length).sum());
   }
@@ -141,6 +211,9 @@ public class Clip {
 
   private static final int MAX_REPAIR_ATTEMPTS = 10;
 
+  // below this many arcs, classifying each region's arcs on a separate thread costs more than it saves
+  private static final int PARALLEL_THRESHOLD = 256;
+
   private enum Operation {
     UNION,
     INTERSECTION,
@@ -166,10 +239,11 @@ public class Clip {
     return delta < 0;
   }
 
-  private static Type classify(Region2 region, Arc arc) {
-    // we want some point near the middle of the arc which is unlikely to coincide with a vertex, because those
-    // sometimes sit ambiguously on the edge of the other region
-    Result result = region.test(arc.position(1.0 / Math.E));
+  private static Type classify(Region2 region, Arc arc, Vec2 p) {
+    return classify(region.test(p), arc);
+  }
+
+  private static Type classify(Result result, Arc arc) {
     if (!result.inside) {
       return Type.OUTSIDE;
     } else if (result.curve == null) {
@@ -179,6 +253,50 @@ public class Clip {
     }
   }
 
+  /**
+   * Classifies every arc against {@code region}.  Rather than casting a ray from each arc against every curve in the
+   * region, the arcs are tested together in a single {@link Scanline} pass.
+   */
+  private static Type[] classify(Region2 region, IList<Arc> arcs, Deadline deadline) {
+    int n = (int) arcs.size();
+    double[] xs = new double[n], ys = new double[n];
+    for (int i = 0; i < n; i++) {
+      // we want some point near the middle of the arc which is unlikely to coincide with a vertex, because those
+      // sometimes sit ambiguously on the edge of the other region
+      Vec2 p = arcs.nth(i).position(1.0 / Math.E);
+      xs[i] = p.x;
+      ys[i] = p.y;
+    }
+
+    Result[] results = new Scanline(region).test(xs, ys, deadline);
+    Type[] types = new Type[n];
+    for (int i = 0; i < n; i++) {
+      types[i] = classify(results[i], arcs.nth(i));
+    }
+    return types;
+  }
+
+  /**
+   * Classifies the arcs of each region against the other, which are independent of each other, so if there are enough
+   * arcs, one is done on another thread.
+   */
+  private static Type[][] classify(Region2 a, IList<Arc> pa, Region2 b, IList<Arc> pb, Deadline deadline) {
+    if (pa.size() + pb.size() < PARALLEL_THRESHOLD) {
+      return new Type[][] {classify(b, pa, deadline), classify(a, pb, deadline)};
+    }
+
+    CompletableFuture<Type[]> ta = CompletableFuture.supplyAsync(() -> classify(b, pa, deadline), ForkJoinPool.commonPool());
+    Type[] tb = classify(a, pb, deadline);
+    try {
+      return new Type[][] {ta.join(), tb};
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   /**
    * Cuts the rings of a region at the specified vertices, yielding a list of arcs that will serve as the edges of our
    * graph.
@@ -224,29 +342,72 @@ public class Clip {
     return result;
   }
 
-  private static IList<IList<Arc>> greedyPairing(IGraph<Vec2, Arc> graph, IList<Vec2> out, ISet<Vec2> in) {
-    IList<IList<Arc>> result = new LinearList<>();
-
-    ISet<Vec2> currIn = in.clone();
-    for (Vec2 v : out) {
-      // this will only happen if a vertex needs to have multiple edges added/removed, but we'll just get it on the
-      // next time around
-      if (currIn.size() == 0) {
-        break;
+  /**
+   * Pairs each vertex in {@code out} with a distinct vertex in {@code in}, such that the aggregate length of the paths
+   * between them is minimized.  The shortest paths from each vertex in {@code out} are only computed once, and then
+   * the pairing is solved as an assignment problem over their lengths.
+   */
+  private static IList<IList<Arc>> minCostPairing(IGraph<Vec2, Arc> graph, IList<Vec2> out, IList<Vec2> in) {
+    int n = (int) out.size(), m = (int) in.size();
+    double[][] costs = new double[n][m];
+    IList<IMap<Vec2, Vec2>> predecessors = new LinearList<>();
+
+    for (int i = 0; i < n; i++) {
+      IMap<Vec2, Double> distances = new LinearMap<>();
+      IMap<Vec2, Vec2> prev = new LinearMap<>();
+      shortestPaths(graph, out.nth(i), distances, prev);
+      predecessors.addLast(prev);
+      for (int j = 0; j < m; j++) {
+        costs[i][j] = distances.get(in.nth(j), Double.POSITIVE_INFINITY);
       }
+    }
 
-      IList<Vec2> path = Graphs.shortestPath(graph, v, currIn::contains, e -> e.value().length()).orElse(null);
-      if (path == null) {
-        return null;
+    IList<IList<Arc>> result = new LinearList<>();
+    int[] assignment = Assignment.solve(costs);
+    for (int i = 0; i < n; i++) {
+      if (assignment[i] < 0) {
+        continue;
       }
 
-      currIn.remove(path.last());
+      IMap<Vec2, Vec2> prev = predecessors.nth(i);
+      IList<Vec2> path = new LinearList<>();
+      for (Vec2 v = in.nth(assignment[i]); v != null; v = prev.get(v, null)) {
+        path.addFirst(v);
+      }
       result.addLast(edges(path, graph::edge));
     }
 
     return result;
   }
 
+  /**
+   * Populates {@code distances} with the length of the shortest path from {@code start} to every reachable vertex, and
+   * {@code predecessors} with the vertex preceding each along that path.
+   */
+  private static void shortestPaths(IGraph<Vec2, Arc> graph, Vec2 start, IMap<Vec2, Double> distances, IMap<Vec2, Vec2> predecessors) {
+    PriorityQueue<IEntry<Vec2, Double>> queue = new PriorityQueue<>(Comparator.comparingDouble(IEntry::value));
+    distances.put(start, 0.0);
+    queue.add(new Maps.Entry<>(start, 0.0));
+
+    while (!queue.isEmpty()) {
+      IEntry<Vec2, Double> e = queue.poll();
+      Vec2 v = e.key();
+      double d = e.value();
+      if (d > distances.get(v, Double.POSITIVE_INFINITY)) {
+        continue;
+      }
+
+      for (Vec2 w : graph.out(v)) {
+        double dw = d + graph.edge(v, w).length();
+        if (dw < distances.get(w, Double.POSITIVE_INFINITY)) {
+          distances.put(w, dw);
+          predecessors.put(w, v);
+          queue.add(new Maps.Entry<>(w, dw));
+        }
+      }
+    }
+  }
+
   private static IList<IList<Arc>> repairGraph(IGraph<Vec2, ISet<Arc>> graph, Iterable<Arc> unused) {
 
     // create a graph of all the unused arcs
@@ -290,20 +451,63 @@ public class Clip {
       return result.elements();
     }
 
-    // Do greedy pairings with every possible vertex ordering, and choose the one that results in the shortest aggregate
-    // paths. If `out` is sufficiently large, `permutations` will just return a subset of random shufflings, and it's
-    // possible we won't find a single workable solution this time around.
-    return Combinatorics.permutations(out.elements())
-      .stream()
-      .map(vs -> greedyPairing(search, vs, in))
-      .filter(Objects::nonNull)
-      .min(Comparator.comparingDouble(path -> path.stream().mapToDouble(Clip::length).sum()))
-      .orElseGet(LinearList::new);
+    // otherwise, pair every out and in at once, choosing the pairing with the shortest aggregate paths
+    return minCostPairing(search, out.elements(), in.elements());
   }
 
   public static Region2 operation(Region2 ra, Region2 rb, Operation operation, Predicate<Type> aPredicate, Predicate<Type> bPredicate) {
+    return operation(ra, rb, operation, aPredicate, bPredicate, Split.Sweep.INTERVAL, Deadline.NONE);
+  }
 
-    Split.Result split = Split.split(ra, rb);
+  private static Region2 operation(Region2 ra, Region2 rb, Operation operation, Predicate<Type> aPredicate, Predicate<Type> bPredicate, Split.Sweep sweep, Deadline deadline) {
+
+    // a ring whose bounds don't overlap any ring of the other region lies entirely outside the other region, so we
+    // can decide whether to keep it without splitting or classifying it
+    IList<Ring2> result = new LinearList<>();
+    IList<Ring2>
+      as = plan(ra, rb, aPredicate.test(Type.OUTSIDE), false, result),
+      bs = plan(rb, ra, bPredicate.test(Type.OUTSIDE), operation == Operation.DIFFERENCE, result);
+
+    if (as.size() == ra.rings.length && bs.size() == rb.rings.length) {
+      return overlay(ra, rb, operation, aPredicate, bPredicate, sweep, deadline);
+    } else if (as.size() > 0) {
+      for (Ring2 r : overlay(new Region2(as), new Region2(bs), operation, aPredicate, bPredicate, sweep, deadline).rings) {
+        result.addLast(r);
+      }
+    }
+
+    return new Region2(result);
+  }
+
+  /**
+   * Divides the rings of {@code region} into those which may interact with {@code other}, which are returned, and those
+   * which can't, which are added to {@code result} if {@code keepOutside} is true.
+   */
+  private static IList<Ring2> plan(Region2 region, Region2 other, boolean keepOutside, boolean reverse, IList<Ring2> result) {
+    IList<Ring2> interacting = new LinearList<>();
+    if (!region.bounds.intersects(other.bounds, Intersections.SPATIAL_EPSILON)) {
+      if (keepOutside) {
+        for (Ring2 r : region.rings) {
+          result.addLast(reverse ? r.reverse() : r);
+        }
+      }
+      return interacting;
+    }
+
+    RTree tree = new RTree(Arrays.stream(other.rings).map(r -> r.bounds).toArray(Box2[]::new));
+    for (Ring2 r : region.rings) {
+      if (tree.intersects(r.bounds, Intersections.SPATIAL_EPSILON)) {
+        interacting.addLast(r);
+      } else if (keepOutside) {
+        result.addLast(reverse ? r.reverse() : r);
+      }
+    }
+    return interacting;
+  }
+
+  private static Region2 overlay(Region2 ra, Region2 rb, Operation operation, Predicate<Type> aPredicate, Predicate<Type> bPredicate, Split.Sweep sweep, Deadline deadline) {
+
+    Split.Result split = Split.split(ra, rb, sweep, deadline);
     Region2 a = split.a;
     Region2 b = split.b;
 
@@ -317,13 +521,18 @@ public class Clip {
     }
 
     // Filter out arcs which are to be ignored, per our operation
+    Type[][] types = classify(a, pa, b, pb, deadline);
     ISet<Arc> arcs = new LinearSet<>();
-    pa.stream()
-      .filter(arc -> aPredicate.test(classify(b, arc)))
-      .forEach(arcs::add);
-    pb.stream()
-      .filter(arc -> bPredicate.test(classify(a, arc)))
-      .forEach(arcs::add);
+    for (int i = 0; i < pa.size(); i++) {
+      if (aPredicate.test(types[0][i])) {
+        arcs.add(pa.nth(i));
+      }
+    }
+    for (int i = 0; i < pb.size(); i++) {
+      if (bPredicate.test(types[1][i])) {
+        arcs.add(pb.nth(i));
+      }
+    }
 
     /*
     describe("split", split.splits.elements());
@@ -331,11 +540,35 @@ public class Clip {
     VERTICES.forEach(v -> System.out.println(VERTICES.indexOf(v) + " " + v));
     //*/
 
+    deadline.check("extract", () -> arcs.size() + " arcs");
+    return extract(arcs, pa.concat(pb), deadline);
+  }
+
+  /**
+   * Assembles the arcs into rings.  If every vertex has as many arcs entering as leaving it, the faces are walked
+   * directly, otherwise we fall back to enumerating cycles, using the rest of the partitioned arcs to repair the graph.
+   */
+  private static Region2 extract(ISet<Arc> arcs, IList<Arc> partitioned) {
+    return extract(arcs, partitioned, Deadline.NONE);
+  }
+
+  private static Region2 extract(ISet<Arc> arcs, IList<Arc> partitioned, Deadline deadline) {
+    IList<Ring2> walked = walk(arcs);
+    if (walked != null) {
+      return new Region2(walked);
+    }
+    long count = arcs.size();
+    deadline.check("extract", () -> "faces couldn't be walked, enumerating cycles over " + count + " arcs");
+
     IList<Ring2> result = new LinearList<>();
     ISet<Arc> consumed = new LinearSet<>();
 
     // First we're going to extract complete cycles, and then try to iteratively repair the graph
     for (int i = 0; i < MAX_REPAIR_ATTEMPTS; i++) {
+      int attempt = i;
+      int remaining = (int) arcs.size();
+      deadline.check("repair", () -> "attempt " + (attempt + 1) + " of " + MAX_REPAIR_ATTEMPTS + ", with "
+        + result.size() + " rings extracted and " + remaining + " arcs remaining");
 
       // Construct a graph where the edges are the set of all arcs connecting the vertices
       IGraph<Vec2, ISet<Arc>> graph = new DirectedGraph<Vec2, ISet<Arc>>().linear();
@@ -344,7 +577,7 @@ public class Clip {
       //graph.vertices().forEach(v -> System.out.println(VERTICES.indexOf(v) + " " + graph.out(v).stream().map(VERTICES::indexOf).collect(Lists.linearCollector())));
 
       if (i > 0) {
-        for (IList<Arc> path : repairGraph(graph, LinearSet.from(pa.concat(pb)).difference(arcs).difference(consumed))) {
+        for (IList<Arc> path : repairGraph(graph, LinearSet.from(partitioned).difference(arcs).difference(consumed))) {
           for (Arc arc : path) {
             // if the graph currently contains the arc, remove it
             if (arcs.contains(arc)) {
@@ -362,6 +595,9 @@ public class Clip {
         }
       }
 
+      deadline.check("repair", () -> "attempt " + (attempt + 1) + " of " + MAX_REPAIR_ATTEMPTS + ", with a graph of "
+        + graph.vertices().size() + " vertices");
+
       // find every cycle in the graph, and then expand those cycles into every possible arc combination, yielding a bunch
       // of rings ordered from largest to smallest
       IList<IList<Arc>> cycles = Graphs.cycles(graph)
@@ -372,6 +608,9 @@ public class Clip {
         .sorted(Comparator.comparingDouble(Clip::area).reversed())
         .collect(Lists.linearCollector());
 
+      deadline.check("repair", () -> "attempt " + (attempt + 1) + " of " + MAX_REPAIR_ATTEMPTS + ", with "
+        + cycles.size() + " candidate cycles");
+
       // extract as many cycles as possible without using the same arc twice
       for (IList<Arc> cycle : cycles) {
         //describe("cycle", cycle.stream().map(Arc::vertices).toArray(IList[]::new));
@@ -395,27 +634,580 @@ public class Clip {
     return new Region2(result);
   }
 
+  /// face walking
+
+  private static Vec2 tangent(Curve2 c, double t) {
+    Vec2 d = c.direction(t);
+
+    // if a control point coincides with an endpoint, the tangent vanishes, so fall back to the chord
+    return d.x == 0 && d.y == 0 ? c.end().sub(c.start()) : d;
+  }
+
+  /**
+   * The angle at which the curve leaves its start, in [0, 2 * PI).
+   */
+  private static double departure(Curve2 c) {
+    Vec2 d = tangent(c, 0);
+    double theta = Math.atan2(d.y, d.x);
+    return theta < 0 ? theta + Math.PI * 2 : theta;
+  }
+
+  /**
+   * The angle at which the curve arrives at its end, measured from its end back along the curve, in [0, 2 * PI).
+   */
+  private static double arrival(Curve2 c) {
+    Vec2 d = tangent(c, 1);
+    double theta = Math.atan2(-d.y, -d.x);
+    return theta < 0 ? theta + Math.PI * 2 : theta;
+  }
+
+  /**
+   * Walks the boundary of each face described by the arcs, which are oriented so the face is on their left.  At each
+   * vertex we take the leftmost outgoing arc, which is the first one clockwise from the arc we arrived on, and any walk
+   * which passes through the same vertex twice is divided into simple rings at that vertex, which is what enumerating
+   * the cycles would have yielded.  Rings narrower than {@code SPATIAL_EPSILON} are discarded.  This takes linear time,
+   * rather than exponential time in the worst case.
+   *
+   * @return the rings, or null if any vertex has a different number of arcs entering and leaving it
+   */
+  private static IList<Ring2> walk(ISet<Arc> arcs) {
+    IMap<Vec2, IList<Arc>> outgoing = new LinearMap<>();
+    IMap<Vec2, Integer> balance = new LinearMap<>();
+    for (Arc arc : arcs) {
+      outgoing.getOrCreate(arc.head(), LinearList::new).addLast(arc);
+      balance.update(arc.head(), n -> n == null ? 1 : n + 1);
+      balance.update(arc.tail(), n -> n == null ? -1 : n - 1);
+    }
+
+    if (balance.values().stream().anyMatch(n -> n != 0)) {
+      return null;
+    }
+
+    IList<Ring2> result = new LinearList<>();
+    ISet<Arc> visited = new LinearSet<>();
+    for (Arc init : arcs) {
+      if (visited.contains(init)) {
+        continue;
+      }
+
+      // the arcs in the current walk, and where each vertex first appears in it
+      IList<Arc> walk = new LinearList<>();
+      IMap<Vec2, Integer> positions = new LinearMap<>();
+
+      Arc arc = init;
+      positions.put(arc.head(), 0);
+      for (; ; ) {
+        visited.add(arc);
+        walk.addLast(arc);
+
+        Vec2 v = arc.tail();
+        Integer position = positions.get(v, null);
+        if (position != null) {
+          // peel off the simple ring which begins and ends at `v`
+          IList<Arc> ring = LinearList.from(walk.slice(position, walk.size()));
+          walk = LinearList.from(walk.slice(0, position));
+          for (Arc a : ring) {
+            positions.remove(a.tail());
+          }
+          positions.put(v, position);
+
+          // arcs which retrace each other enclose nothing, and are dropped
+          if (localArea(ring) > Intersections.SPATIAL_EPSILON * length(ring)) {
+            result.addLast(ring(ring));
+          }
+
+          if (walk.size() == 0) {
+            break;
+          }
+        } else {
+          positions.put(v, (int) walk.size());
+        }
+
+        arc = next(outgoing.get(v).get(), arrival(arc.last()), visited);
+        if (arc == null) {
+          return null;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the first unvisited arc clockwise from the angle at which we arrived, or null if there are none
+   */
+  private static Arc next(IList<Arc> candidates, double arrival, ISet<Arc> visited) {
+    Arc result = null;
+    double best = Double.NEGATIVE_INFINITY;
+    for (Arc a : candidates) {
+      if (visited.contains(a)) {
+        continue;
+      }
+
+      // the counter-clockwise angle from the arrival to the departure, where the largest is the first clockwise
+      double theta = departure(a.first()) - arrival;
+      if (theta <= 0) {
+        theta += Math.PI * 2;
+      }
+      if (theta > best) {
+        best = theta;
+        result = a;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Like {@link #operation(Region2, Region2, Operation, Predicate, Predicate)}, but for any number of regions, which are
+   * split against each other in a single pass.  An arc is kept if {@code predicate} accepts its classification against
+   * every other region, where the boolean is true if the arc's region precedes the other region.  This allows an edge
+   * shared by several regions to be kept exactly once.
+   */
+  private static Region2 operation(Region2[] regions, BiPredicate<Type, Boolean> predicate) {
+    if (regions.length == 0) {
+      return new Region2(new Ring2[0]);
+    } else if (regions.length == 1) {
+      return regions[0];
+    }
+
+    Split.Results split = Split.split(regions, ForkJoinPool.commonPool());
+    Region2[] rs = split.regions;
+
+    // if we're outside a region's bounds, we're outside the region, so we only need to test the regions whose bounds
+    // overlap the arc on the x-axis, which we find by sorting on the lower x-coordinate
+    Box2[] bounds = new Box2[rs.length];
+    double[] keys = new double[rs.length];
+    int[] order = new int[rs.length];
+    double width = 0;
+    for (int i = 0; i < rs.length; i++) {
+      bounds[i] = rs[i].bounds.expand(Intersections.SPATIAL_EPSILON);
+      keys[i] = bounds[i].lx;
+      order[i] = i;
+      width = Math.max(width, bounds[i].width());
+    }
+    Sorts.sort(keys, order);
+
+    boolean keepOutside = predicate.test(Type.OUTSIDE, true);
+
+    ISet<Arc> arcs = new LinearSet<>();
+    IList<Arc> partitioned = new LinearList<>();
+    for (int i = 0; i < rs.length; i++) {
+      for (Arc arc : partition(rs[i], split.splits)) {
+        partitioned.addLast(arc);
+
+        Vec2 p = arc.position(1.0 / Math.E);
+        int lo = search(keys, p.x - width);
+        int hi = search(keys, Math.nextUp(p.x));
+
+        // every region not between `lo` and `hi` is outside
+        boolean keep = keepOutside || hi - lo == rs.length;
+        for (int k = lo; keep && k < hi; k++) {
+          int j = order[k];
+          if (j != i) {
+            Type t = bounds[j].contains(p) ? classify(rs[j], arc, p) : Type.OUTSIDE;
+            keep = predicate.test(t, i < j);
+          }
+        }
+
+        if (keep) {
+          arcs.add(arc);
+        }
+      }
+    }
+
+    return extract(arcs, partitioned);
+  }
+
+  /**
+   * @return the first index in the sorted {@code keys} whose value is not less than {@code key}
+   */
+  private static int search(double[] keys, double key) {
+    int lo = 0, hi = keys.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (keys[mid] < key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * The winding numbers of each operand on either side of an arc, which are only computed once the expression asks
+   * whether that operand contains one of the sides, so that a union or intersection over many operands can stop at the
+   * first one which decides it.
+   */
+  private static final class Windings {
+
+    private final Ring2[] rings;
+    private final Box2[] bounds;
+    private final int[][] operandRings;
+    private final Expression.FillRule rule;
+
+    // the windings of each operand, and the index of the arc they were computed for
+    private final int[] left, right, computed;
+
+    private int arc = -1;
+    private Vec2 p;
+    private boolean top;
+    private IMap<Integer, Boolean> coincident;
+
+    final IntPredicate inLeft = k -> contains(compute(k).left[k]);
+    final IntPredicate inRight = k -> contains(compute(k).right[k]);
+
+    Windings(Ring2[] rings, Box2[] bounds, int[] owners, int operands, Expression.FillRule rule) {
+      this.rings = rings;
+      this.bounds = bounds;
+      this.rule = rule;
+
+      IList<IList<Integer>> acc = new LinearList<>();
+      for (int i = 0; i < operands; i++) {
+        acc.addLast(new LinearList<>());
+      }
+      for (int i = 0; i < owners.length; i++) {
+        acc.nth(owners[i]).addLast(i);
+      }
+      this.operandRings = acc.stream().map(l -> l.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+
+      this.left = new int[operands];
+      this.right = new int[operands];
+      this.computed = new int[operands];
+      Arrays.fill(computed, -1);
+    }
+
+    /**
+     * @param coincident every ring with an arc coinciding with the current arc, and whether it runs in the same direction
+     */
+    void reset(int arc, Vec2 p, boolean top, IMap<Integer, Boolean> coincident) {
+      this.arc = arc;
+      this.p = p;
+      this.top = top;
+      this.coincident = coincident;
+    }
+
+    private boolean contains(int winding) {
+      return rule == Expression.FillRule.EVEN_ODD ? (winding & 1) != 0 : winding != 0;
+    }
+
+    private Windings compute(int operand) {
+      if (computed[operand] == arc) {
+        return this;
+      }
+      computed[operand] = arc;
+
+      int l = 0, r = 0;
+      for (int j : operandRings[operand]) {
+        if (!bounds[j].contains(p)) {
+          continue;
+        }
+
+        Ring2 ring = rings[j];
+        Boolean same = coincident.get(j, null);
+        int winding = 0;
+
+        if (same == null) {
+          double limit = ring.bounds.ux + 1;
+          for (Curve2 c : ring.curves) {
+            int crossing = Crossings.crossing(c, p.x, p.y, limit);
+            if (crossing == Crossings.EDGE) {
+              same = isTop(c) == top;
+              break;
+            }
+            winding += crossing;
+          }
+        }
+
+        if (same == null) {
+          l += winding;
+          r += winding;
+        } else {
+          // a counter-clockwise ring has a winding number of 1 on its left, and a clockwise ring has a winding number
+          // of -1 on its right
+          int inside = ring.isClockwise ? -1 : 1;
+          boolean interiorOnLeft = same != ring.isClockwise;
+          l += interiorOnLeft ? inside : 0;
+          r += interiorOnLeft ? 0 : inside;
+        }
+      }
+
+      left[operand] = l;
+      right[operand] = r;
+      return this;
+    }
+  }
+
+  /**
+   * Evaluates a boolean expression over any number of operands, which are split against each other in a single sweep.
+   * Unlike the other operations, every ring is split against every other ring, including those in the same operand, so
+   * an operand's rings may overlap, and whether a point is within an operand is determined by {@code rule}.
+   * <p>
+   * Each arc is classified by which operands contain the faces on either side of it, and is kept if {@code expression}
+   * accepts one side but not the other, oriented so that the accepted side is on its left.  Where arcs from several
+   * rings coincide, only the arc from the earliest ring is kept.
+   *
+   * @param expression given whether each operand contains a face, returns whether the result should contain it
+   */
+  public static Region2 evaluate(Region2[] operands, Predicate<IntPredicate> expression, Expression.FillRule rule) {
+
+    // each ring is split as its own region, so that rings within the same operand are also split against each other
+    IList<Region2> singles = new LinearList<>();
+    IList<Integer> ringOwners = new LinearList<>();
+    for (int i = 0; i < operands.length; i++) {
+      for (Ring2 r : operands[i].rings) {
+        singles.addLast(r.region());
+        ringOwners.addLast(i);
+      }
+    }
+
+    Split.Results split = Split.split(singles.toArray(Region2[]::new), ForkJoinPool.commonPool());
+
+    // rings which collapse when split are dropped
+    IList<Ring2> rings = new LinearList<>();
+    IList<Integer> ringIndices = new LinearList<>();
+    for (int i = 0; i < split.regions.length; i++) {
+      if (split.regions[i].rings.length > 0) {
+        rings.addLast(split.regions[i].rings[0]);
+        ringIndices.addLast(i);
+      }
+    }
+
+    int n = (int) rings.size();
+    Ring2[] rs = rings.toArray(Ring2[]::new);
+    Box2[] bounds = new Box2[n];
+    int[] owners = new int[n];
+    for (int i = 0; i < n; i++) {
+      bounds[i] = rs[i].bounds.expand(Intersections.SPATIAL_EPSILON);
+      owners[i] = ringOwners.nth(ringIndices.nth(i));
+    }
+
+    // partition every ring, indexing the arcs by their first vertex so that we can find those which coincide
+    IList<Arc> partitioned = new LinearList<>();
+    IList<Integer> arcRings = new LinearList<>();
+    IMap<Vec2, IList<Integer>> heads = new LinearMap<>();
+    for (int i = 0; i < n; i++) {
+      for (Arc arc : partition(rs[i].region(), split.splits)) {
+        heads.getOrCreate(arc.head(), LinearList::new).addLast((int) partitioned.size());
+        partitioned.addLast(arc);
+        arcRings.addLast(i);
+      }
+    }
+
+    Windings windings = new Windings(rs, bounds, owners, operands.length, rule);
+    ISet<Arc> arcs = new LinearSet<>();
+    for (int idx = 0; idx < partitioned.size(); idx++) {
+      Arc arc = partitioned.nth(idx);
+      int i = arcRings.nth(idx);
+
+      Vec2 p = arc.position(1.0 / Math.E);
+      Vec2 direction = arc.direction(1.0 / Math.E);
+
+      // every ring with an arc that coincides with this one, and whether that arc runs in the same direction, which
+      // is more reliable than a crossing test for edges that are nearly horizontal
+      IMap<Integer, Boolean> coincident = new LinearMap<Integer, Boolean>().put(i, true);
+      Vec2 head = arc.head(), tail = arc.tail();
+      for (Vec2 v : new Vec2[] {head, tail}) {
+        Vec2 other = v == head ? tail : head;
+        for (int k : heads.get(v).orElseGet(LinearList::new)) {
+          Arc a = partitioned.nth(k);
+          int j = arcRings.nth(k);
+          Curve2 edge = j == i || !a.tail().equals(other) ? null : curve(a, p);
+          if (edge != null) {
+            coincident.put(j, Vec.dot(direction, tangent(edge, edge.nearestPoint(p))) > 0);
+          }
+        }
+      }
+
+      // only the arc from the earliest ring is kept
+      if (coincident.keys().stream().anyMatch(j -> j < i)) {
+        continue;
+      }
+
+      windings.reset(idx, p, isTop(arc.curve(1.0 / Math.E)), coincident);
+      boolean l = expression.test(windings.inLeft), r = expression.test(windings.inRight);
+      if (l != r) {
+        arcs.add(l ? arc : arc.reverse());
+      }
+    }
+
+    return extract(arcs, partitioned);
+  }
+
+  /**
+   * @return the curve within {@code arc} which passes through {@code p}, or null if there isn't one
+   */
+  private static Curve2 curve(Arc arc, Vec2 p) {
+    for (Curve2 c : arc) {
+      if (!c.bounds().expand(Intersections.PARAMETRIC_EPSILON).contains(p)) {
+        continue;
+      }
+
+      // the nearest point on a line may lie beyond its endpoints
+      double t = Scalars.clamp(0, c.nearestPoint(p), 1);
+      if (c.position(t).sub(p).length() < Intersections.PARAMETRIC_EPSILON) {
+        return c;
+      }
+    }
+    return null;
+  }
+
   ///
 
   public static Region2 union(Region2 a, Region2 b) {
+    return union(a, b, Deadline.NONE);
+  }
+
+  public static Region2 intersection(Region2 a, Region2 b) {
+    return intersection(a, b, Deadline.NONE);
+  }
+
+  public static Region2 difference(Region2 a, Region2 b) {
+    return difference(a, b, Deadline.NONE);
+  }
+
+  public static Region2 union(Region2 a, Region2 b, Deadline deadline) {
+    return union(a, b, Split.Sweep.INTERVAL, deadline);
+  }
+
+  public static Region2 union(Region2 a, Region2 b, Split.Sweep sweep, Deadline deadline) {
     return operation(a, b,
       Operation.UNION,
       t -> t == Type.OUTSIDE || t == Type.SAME_EDGE,
-      t -> t == Type.OUTSIDE);
+      t -> t == Type.OUTSIDE,
+      sweep,
+      deadline);
   }
 
-  public static Region2 intersection(Region2 a, Region2 b) {
+  public static Region2 intersection(Region2 a, Region2 b, Deadline deadline) {
+    return intersection(a, b, Split.Sweep.INTERVAL, deadline);
+  }
+
+  public static Region2 intersection(Region2 a, Region2 b, Split.Sweep sweep, Deadline deadline) {
     return operation(a, b,
       Operation.INTERSECTION,
       t -> t == Type.INSIDE || t == Type.SAME_EDGE,
-      t -> t == Type.INSIDE);
+      t -> t == Type.INSIDE,
+      sweep,
+      deadline);
   }
 
-  public static Region2 difference(Region2 a, Region2 b) {
+  public static Region2 difference(Region2 a, Region2 b, Deadline deadline) {
+    return difference(a, b, Split.Sweep.INTERVAL, deadline);
+  }
+
+  public static Region2 difference(Region2 a, Region2 b, Split.Sweep sweep, Deadline deadline) {
     return operation(a, b,
       Operation.DIFFERENCE,
       t -> t == Type.OUTSIDE || t == Type.DIFF_EDGE,
-      t -> t == Type.INSIDE);
+      t -> t == Type.INSIDE,
+      sweep,
+      deadline);
+  }
+
+  /**
+   * Returns the union of every region, which are split against each other in a single sweep rather than accumulated
+   * one at a time.
+   */
+  public static Region2 union(Region2[] regions) {
+    regions = Arrays.stream(regions).filter(r -> !r.bounds.isEmpty()).toArray(Region2[]::new);
+    return operation(regions, (t, first) -> t == Type.OUTSIDE || (t == Type.SAME_EDGE && first));
+  }
+
+  /**
+   * Returns the intersection of every region, which are split against each other in a single sweep rather than
+   * accumulated one at a time.
+   */
+  public static Region2 intersection(Region2[] regions) {
+    Box2 bounds = Arrays.stream(regions).map(Region2::bounds).reduce(Box2::intersection).orElse(Box2.EMPTY);
+    if (regions.length > 1 && bounds.isEmpty()) {
+      return new Region2(new Ring2[0]);
+    }
+
+    return operation(regions, (t, first) -> t == Type.INSIDE || (t == Type.SAME_EDGE && first));
+  }
+
+  /// cascaded union
+
+  // the number of regions unioned in a single sweep at the leaves of the cascade
+  private static final int CASCADE_LEAF_SIZE = 8;
+
+  private static final int HILBERT_ORDER = 16;
+
+  /**
+   * Returns the union of every region.  The regions are ordered along a Hilbert curve through the centers of their
+   * bounds, so that neighboring regions are unioned together, and then merged pairwise in a balanced tree.  Each merge
+   * is run on {@code executor} once both of its inputs are ready, and if the executor is {@code null}, everything is
+   * run on the calling thread.
+   */
+  public static Region2 cascadedUnion(Region2[] regions, Executor executor) {
+    Region2[] rs = Arrays.stream(regions).filter(r -> !r.bounds.isEmpty()).toArray(Region2[]::new);
+    if (rs.length == 0) {
+      return new Region2(new Ring2[0]);
+    }
+
+    Box2 bounds = Arrays.stream(rs).map(Region2::bounds).reduce(Box2::union).get();
+    double scale = ((1 << HILBERT_ORDER) - 1) / Math.max(Math.max(bounds.width(), bounds.height()), Scalars.EPSILON);
+
+    double[] keys = new double[rs.length];
+    int[] order = new int[rs.length];
+    for (int i = 0; i < rs.length; i++) {
+      Box2 b = rs[i].bounds;
+      keys[i] = hilbert(
+        (int) ((((b.lx + b.ux) / 2) - bounds.lx) * scale),
+        (int) ((((b.ly + b.uy) / 2) - bounds.ly) * scale));
+      order[i] = i;
+    }
+    Sorts.sort(keys, order);
+
+    Region2[] sorted = new Region2[rs.length];
+    for (int i = 0; i < rs.length; i++) {
+      sorted[i] = rs[order[i]];
+    }
+
+    try {
+      return cascade(sorted, 0, sorted.length, executor == null ? Runnable::run : executor).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static CompletableFuture<Region2> cascade(Region2[] regions, int start, int end, Executor executor) {
+    if (end - start <= CASCADE_LEAF_SIZE) {
+      return CompletableFuture.supplyAsync(() -> union(Arrays.copyOfRange(regions, start, end)), executor);
+    }
+
+    int mid = (start + end) >>> 1;
+    return cascade(regions, start, mid, executor)
+      .thenCombineAsync(cascade(regions, mid, end, executor), Clip::union, executor);
+  }
+
+  /**
+   * @return the distance along a Hilbert curve of order {@code HILBERT_ORDER} to the cell at {@code (x, y)}
+   */
+  private static long hilbert(int x, int y) {
+    int n = 1 << HILBERT_ORDER;
+    long d = 0;
+    for (int s = n / 2; s > 0; s /= 2) {
+      int rx = (x & s) > 0 ? 1 : 0;
+      int ry = (y & s) > 0 ? 1 : 0;
+      d += (long) s * s * ((3 * rx) ^ ry);
+
+      // rotate the quadrant, so that the curve within it has the right orientation
+      if (ry == 0) {
+        if (rx == 1) {
+          x = n - 1 - x;
+          y = n - 1 - y;
+        }
+        int t = x;
+        x = y;
+        y = t;
+      }
+    }
+    return d;
   }
 
 }
@@ -0,0 +1,160 @@
+package io.lacuna.artifex.utils.regions;
+
+import io.lacuna.artifex.Region2;
+import io.lacuna.bifurcan.IList;
+import io.lacuna.bifurcan.IMap;
+import io.lacuna.bifurcan.LinearList;
+import io.lacuna.bifurcan.LinearMap;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * A boolean expression over regions, such as {@code (A or B) and not (C and D)}.  Rather than clipping each
+ * subexpression and splitting the intermediate results against each other, every operand is split against the others
+ * once, and the expression is evaluated on either side of each resulting edge.
+ * <p>
+ * The same region may appear more than once within an expression, but is only split once.
+ *
+ * @author ztellman
+ */
+public abstract class Expression {
+
+  /**
+   * Determines whether a point is within an operand whose rings overlap.  For regions whose rings don't overlap, these
+   * are equivalent.
+   */
+  public enum FillRule {
+    // within an odd number of rings
+    EVEN_ODD,
+    // within rings whose winding numbers don't sum to zero
+    NON_ZERO
+  }
+
+  private Expression() {
+  }
+
+  /**
+   * @param indices the index of each operand that's already been encountered
+   * @param operands every operand that's already been encountered, which is added to if necessary
+   * @return a predicate which, given whether each operand contains a point, returns whether the expression contains it
+   */
+  abstract Predicate<IntPredicate> compile(IMap<Region2, Integer> indices, IList<Region2> operands);
+
+  ///
+
+  public static Expression of(Region2 region) {
+    return new Expression() {
+      @Override
+      Predicate<IntPredicate> compile(IMap<Region2, Integer> indices, IList<Region2> operands) {
+        int idx = indices.get(region, -1);
+        if (idx < 0) {
+          idx = (int) operands.size();
+          indices.put(region, idx);
+          operands.addLast(region);
+        }
+
+        int i = idx;
+        return in -> in.test(i);
+      }
+    };
+  }
+
+  public static Expression union(Expression... es) {
+    return new Expression() {
+      @Override
+      Predicate<IntPredicate> compile(IMap<Region2, Integer> indices, IList<Region2> operands) {
+        Predicate<IntPredicate>[] ps = compileAll(es, indices, operands);
+        return in -> {
+          for (Predicate<IntPredicate> p : ps) {
+            if (p.test(in)) {
+              return true;
+            }
+          }
+          return false;
+        };
+      }
+    };
+  }
+
+  public static Expression intersection(Expression... es) {
+    return new Expression() {
+      @Override
+      Predicate<IntPredicate> compile(IMap<Region2, Integer> indices, IList<Region2> operands) {
+        Predicate<IntPredicate>[] ps = compileAll(es, indices, operands);
+        return in -> {
+          for (Predicate<IntPredicate> p : ps) {
+            if (!p.test(in)) {
+              return false;
+            }
+          }
+          return ps.length > 0;
+        };
+      }
+    };
+  }
+
+  public static Expression difference(Expression a, Expression b) {
+    return new Expression() {
+      @Override
+      Predicate<IntPredicate> compile(IMap<Region2, Integer> indices, IList<Region2> operands) {
+        Predicate<IntPredicate> pa = a.compile(indices, operands);
+        Predicate<IntPredicate> pb = b.compile(indices, operands);
+        return in -> pa.test(in) && !pb.test(in);
+      }
+    };
+  }
+
+  /**
+   * @return an expression which contains everything within exactly one of {@code a} and {@code b}
+   */
+  public static Expression xor(Expression a, Expression b) {
+    return new Expression() {
+      @Override
+      Predicate<IntPredicate> compile(IMap<Region2, Integer> indices, IList<Region2> operands) {
+        Predicate<IntPredicate> pa = a.compile(indices, operands);
+        Predicate<IntPredicate> pb = b.compile(indices, operands);
+        return in -> pa.test(in) != pb.test(in);
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Predicate<IntPredicate>[] compileAll(Expression[] es, IMap<Region2, Integer> indices, IList<Region2> operands) {
+    return Arrays.stream(es).map(e -> e.compile(indices, operands)).toArray(Predicate[]::new);
+  }
+
+  ///
+
+  public Expression union(Expression e) {
+    return union(this, e);
+  }
+
+  public Expression intersection(Expression e) {
+    return intersection(this, e);
+  }
+
+  public Expression difference(Expression e) {
+    return difference(this, e);
+  }
+
+  public Expression xor(Expression e) {
+    return xor(this, e);
+  }
+
+  /**
+   * Evaluates the expression using the {@link FillRule#NON_ZERO} fill rule.
+   */
+  public Region2 evaluate() {
+    return evaluate(FillRule.NON_ZERO);
+  }
+
+  public Region2 evaluate(FillRule rule) {
+    IMap<Region2, Integer> indices = new LinearMap<>();
+    IList<Region2> operands = new LinearList<>();
+    Predicate<IntPredicate> predicate = compile(indices, operands);
+
+    return Clip.evaluate(operands.toArray(Region2[]::new), predicate, rule);
+  }
+}
@@ -1,16 +1,27 @@
 package io.lacuna.artifex.utils.regions;
 
 import io.lacuna.artifex.*;
+import io.lacuna.artifex.utils.Deadline;
 import io.lacuna.artifex.utils.DoubleAccumulator;
+import io.lacuna.artifex.utils.IntersectionStats;
+import io.lacuna.artifex.utils.Intersections;
 import io.lacuna.artifex.utils.Scalars;
-import io.lacuna.artifex.utils.SweepQueue;
+import io.lacuna.artifex.utils.SpatialHash;
+import io.lacuna.artifex.utils.SweepEvents;
+import io.lacuna.artifex.utils.SweepLine;
+import io.lacuna.artifex.utils.UnionFind;
 import io.lacuna.bifurcan.*;
 
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import static io.lacuna.artifex.utils.Intersections.PARAMETRIC_EPSILON;
 import static io.lacuna.artifex.utils.Intersections.SPATIAL_EPSILON;
+import static io.lacuna.artifex.utils.Intersections.round;
 import static java.lang.Math.max;
 
 public class Split {
@@ -19,44 +30,64 @@ public class Split {
    * A union-join implementation that will group together chains of intersection points that are sufficiently close
    * to at least one other vertex in the chain.  This avoids the bevy of problems that arise from infinitesimal curve
    * segments by shrinking them out of existence.
+   * <p>
+   * Each vertex is snapped to the first vertex within {@code SPATIAL_EPSILON} of it, and given an integer id, so that
+   * the union-find never has to hash a {@link Vec2}.  Each set is represented by its lowest vertex, so the result
+   * doesn't depend on the order in which vertices are joined.
    */
   static class VertexUnion {
 
-    private final IMap<Vec2, Vec2> parent = new LinearMap<>();
-    private final ISet<Vec2> roots = new LinearSet<>();
+    private final SpatialHash vertices = new SpatialHash(SPATIAL_EPSILON);
+    private final UnionFind sets = new UnionFind();
 
-    public void join(Vec2 a, Vec2 b) {
-      a = adjust(a);
-      b = adjust(b);
-      int cmp = a.compareTo(b);
-      if (cmp < 0) {
-        parent.put(b, a);
-        roots.add(a);
-      } else if (cmp > 0) {
-        parent.put(a, b);
-        roots.add(b);
-      } else {
-        roots.add(b);
+    private Vec2[] points = new Vec2[16];
+
+    // for each root id, the id of the lowest vertex in its set
+    private int[] representatives = new int[16];
+
+    private int id(Vec2 p) {
+      int id = vertices.get(p.x, p.y);
+      if (id < 0) {
+        id = vertices.add(p.x, p.y);
+        sets.add();
+        if (id == points.length) {
+          points = Arrays.copyOf(points, id << 1);
+          representatives = Arrays.copyOf(representatives, id << 1);
+        }
+        points[id] = p;
+        representatives[id] = id;
       }
+      return id;
+    }
+
+    public void join(Vec2 a, Vec2 b) {
+      int ra = sets.find(id(a));
+      int rb = sets.find(id(b));
+      int va = representatives[ra];
+      int vb = representatives[rb];
+
+      representatives[sets.union(ra, rb)] = points[va].compareTo(points[vb]) <= 0 ? va : vb;
     }
 
     public Vec2 adjust(Vec2 p) {
-      Vec2 curr = p;
-      for (; ; ) {
-        Vec2 next = parent.get(curr, null);
-        if (next == null) {
-          if (!curr.equals(p)) {
-            parent.put(p, curr);
-          }
-          return curr;
-        }
-        curr = next;
+      int id = vertices.get(p.x, p.y);
+      if (id < 0) {
+        return p;
       }
+
+      Vec2 v = points[representatives[sets.find(id)]];
+      return v.equals(p) ? p : v;
     }
 
     public Curve2 adjust(Curve2 c) {
-      Vec2 start = adjust(c.start());
-      Vec2 end = adjust(c.end());
+      Vec2 s = c.start();
+      Vec2 e = c.end();
+      Vec2 start = adjust(s);
+      Vec2 end = adjust(e);
+
+      if (start == s && end == e) {
+        return c;
+      }
 
       return start.equals(end)
         ? null
@@ -64,11 +95,154 @@ public class Split {
     }
 
     public ISet<Vec2> roots() {
-      return roots.difference(parent.keys());
+      ISet<Vec2> result = new LinearSet<>();
+      for (int i = 0; i < sets.size(); i++) {
+        if (sets.find(i) == i) {
+          result.add(points[representatives[i]]);
+        }
+      }
+      return result;
     }
 
   }
 
+  /**
+   * Pairs of curves whose x-extents overlap somewhere in the sweep, along with their intersections once solved.  Each
+   * pair is independent of the others, so they're solved in fixed-size chunks, each writing into its own accumulator.
+   */
+  static class Candidates {
+
+    static final int CHUNK_SIZE = 64;
+
+    // below this, handing off to another thread costs more than it saves
+    static final int PARALLEL_THRESHOLD = 4 * CHUNK_SIZE;
+
+    final IList<Curve2> curves;
+    final int size;
+    final int[] offsets, counts;
+    final DoubleAccumulator[] chunks;
+
+    Candidates(IList<Curve2> curves) {
+      this.curves = curves;
+      this.size = (int) (curves.size() / 2);
+      this.offsets = new int[size];
+      this.counts = new int[size];
+      this.chunks = new DoubleAccumulator[(size + CHUNK_SIZE - 1) / CHUNK_SIZE];
+    }
+
+    Curve2 a(int i) {
+      return curves.nth(i * 2);
+    }
+
+    Curve2 b(int i) {
+      return curves.nth(i * 2 + 1);
+    }
+
+    DoubleAccumulator chunk(int i) {
+      return chunks[i / CHUNK_SIZE];
+    }
+
+    void solve(Executor executor, Deadline deadline) {
+      if (executor == null || size < PARALLEL_THRESHOLD) {
+        for (int i = 0; i < chunks.length; i++) {
+          solve(i, deadline);
+        }
+        return;
+      }
+
+      CompletableFuture<?>[] futures = new CompletableFuture<?>[chunks.length];
+      for (int i = 0; i < chunks.length; i++) {
+        int chunk = i;
+        futures[i] = CompletableFuture.runAsync(() -> solve(chunk, deadline), executor);
+      }
+
+      try {
+        CompletableFuture.allOf(futures).join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+
+    private void solve(int chunk, Deadline deadline) {
+      deadline.check("split", () -> "solving chunk " + chunk + " of " + chunks.length + " of candidate pairs");
+
+      DoubleAccumulator acc = new DoubleAccumulator();
+      for (int i = chunk * CHUNK_SIZE, end = Math.min(size, i + CHUNK_SIZE); i < end; i++) {
+        offsets[i] = acc.size();
+        counts[i] = a(i).intersections(b(i), acc);
+      }
+      chunks[chunk] = acc;
+    }
+  }
+
+  /**
+   * The endpoints and bounds of an array of {@link Line2} segments, packed into primitive arrays.
+   */
+  static class Segments {
+    final double[] ax, ay, bx, by;
+    final double[] lx, ly, ux, uy;
+
+    Segments(Curve2[] curves) {
+      int n = curves.length;
+      ax = new double[n];
+      ay = new double[n];
+      bx = new double[n];
+      by = new double[n];
+      lx = new double[n];
+      ly = new double[n];
+      ux = new double[n];
+      uy = new double[n];
+
+      for (int i = 0; i < n; i++) {
+        Line2 l = (Line2) curves[i];
+        ax[i] = l.ax;
+        ay[i] = l.ay;
+        bx[i] = l.bx;
+        by[i] = l.by;
+        lx[i] = Math.min(l.ax, l.bx);
+        ly[i] = Math.min(l.ay, l.by);
+        ux[i] = Math.max(l.ax, l.bx);
+        uy[i] = Math.max(l.ay, l.by);
+      }
+    }
+
+    /**
+     * Equivalent to {@link Box2#intersects(Box2, double)} on the bounds of each segment, with {@code SPATIAL_EPSILON}.
+     */
+    boolean overlaps(int i, Segments s, int j) {
+      return s.ux[j] >= lx[i] - SPATIAL_EPSILON
+        & ux[i] + SPATIAL_EPSILON >= s.lx[j]
+        & s.uy[j] >= ly[i] - SPATIAL_EPSILON
+        & uy[i] + SPATIAL_EPSILON >= s.ly[j];
+    }
+
+    /**
+     * Equivalent to {@link Curve2#intersections(Curve2, DoubleAccumulator)} for two segments whose bounds overlap.
+     */
+    static int intersections(Segments a, int i, Curve2 ca, Segments b, int j, Curve2 cb, DoubleAccumulator acc) {
+      double avx = a.bx[i] - a.ax[i], avy = a.by[i] - a.ay[i];
+      double bvx = b.bx[j] - b.ax[j], bvy = b.by[j] - b.ay[j];
+      double d = (avx * bvy) - (avy * bvx);
+
+      // nearly parallel segments may be collinear, which is left to the general case, as is anything being observed
+      if (Math.abs(d) < 1e-6 || Intersections.getCache() != null || IntersectionStats.isEnabled()) {
+        return ca.intersections(cb, acc);
+      }
+
+      double asbx = a.ax[i] - b.ax[j], asby = a.ay[i] - b.ay[j];
+      double s = round(((bvx * asby) - (bvy * asbx)) / d, PARAMETRIC_EPSILON);
+      double t = round(((avx * asby) - (avy * asbx)) / d, PARAMETRIC_EPSILON);
+      if (0 <= s && s <= 1 && 0 <= t && t <= 1) {
+        acc.add(s, t);
+        return 1;
+      }
+      return 0;
+    }
+  }
+
   public static class Result {
     public final Region2 a, b;
     public final ISet<Vec2> splits;
@@ -80,62 +254,318 @@ public class Split {
     }
   }
 
+  /**
+   * The result of splitting several regions against one another.
+   */
+  public static class Results {
+    public final Region2[] regions;
+    public final ISet<Vec2> splits;
+
+    public Results(Region2[] regions, ISet<Vec2> splits) {
+      this.regions = regions;
+      this.splits = splits;
+    }
+  }
+
+  // how many events are swept between checks of the deadline, which must be a power of two
+  private static final int CHECK_INTERVAL = 1024;
+
+  /**
+   * How the curves of two regions are paired up to find their intersections.
+   */
+  public enum Sweep {
+    /**
+     * Compares every pair of curves which overlap on the x-axis, in parallel where possible.
+     */
+    INTERVAL,
+    /**
+     * Uses {@link SweepLine}, which only compares curves which are adjacent on the y-axis.  This is much faster when
+     * many curves overlap on the x-axis, such as long horizontal bands, but is slower otherwise, and always runs on the
+     * calling thread.
+     */
+    ORDERED
+  }
+
   /**
    * Given two regions, returns the regions with new curve endpoints where they intersect, and a set describing those
    * new vertices.
    */
   public static Result split(Region2 a, Region2 b) {
+    return split(a, b, Sweep.INTERVAL, Deadline.NONE);
+  }
+
+  /**
+   * Same as {@link #split(Region2, Region2)}, but finds intersections using {@code sweep}.
+   */
+  public static Result split(Region2 a, Region2 b, Sweep sweep) {
+    return split(a, b, sweep, Deadline.NONE);
+  }
+
+  /**
+   * Same as {@link #split(Region2, Region2, Sweep)}, but periodically checks {@code deadline}.
+   */
+  static Result split(Region2 a, Region2 b, Sweep sweep, Deadline deadline) {
+    if (sweep == Sweep.ORDERED) {
+      return splitOrdered(a, b, deadline);
+    } else if (isPolygonal(a) && isPolygonal(b)) {
+      return splitLines(a, b, deadline);
+    } else {
+      // stats are recorded per-thread, so while they're being collected everything is solved on the calling thread
+      return split(a, b, IntersectionStats.isEnabled() ? null : ForkJoinPool.commonPool(), deadline);
+    }
+  }
 
-    // maintain a separate sweep queue for each region
-    SweepQueue<Curve2>[] queues = new SweepQueue[]{new SweepQueue(), new SweepQueue()};
+  /**
+   * Same as {@link #split(Region2, Region2)}, but uses {@link Sweep#ORDERED}.
+   */
+  public static Result splitOrdered(Region2 a, Region2 b) {
+    return splitOrdered(a, b, Deadline.NONE);
+  }
 
-    add(a, queues[0]);
-    add(b, queues[1]);
+  static Result splitOrdered(Region2 a, Region2 b, Deadline deadline) {
+    Curve2[] as = curves(a);
+    Curve2[] bs = curves(b);
 
+    IMap<Curve2, DoubleAccumulator> intersections = new LinearMap<>();
+    for (Curve2 c : as) {
+      intersections.put(c, new DoubleAccumulator());
+    }
+    for (Curve2 c : bs) {
+      intersections.put(c, new DoubleAccumulator());
+    }
+
+    // the sweep is deterministic, so merging as we go gives the same vertex union every time
     VertexUnion union = new VertexUnion();
+    int[] count = {0};
+    SweepLine.intersections(as, bs, (i, j, t0, t1) -> {
+      if ((++count[0] & CHECK_INTERVAL - 1) == 0) {
+        deadline.check("split", () -> count[0] + " intersections found");
+      }
+      intersections.get(as[i]).get().add(t0);
+      intersections.get(bs[j]).get().add(t1);
+      union.join(as[i].position(t0), bs[j].position(t1));
+    });
+
+    return result(a, b, intersections, union, deadline);
+  }
+
+  /**
+   * Same as {@link #split(Region2, Region2)}, but solves the candidate intersections on {@code executor}.  If the
+   * executor is {@code null}, or there are too few candidates to be worth distributing, they are solved on the calling
+   * thread.  In either case, the result is identical to a serial split.
+   */
+  public static Result split(Region2 a, Region2 b, Executor executor) {
+    return split(a, b, executor, Deadline.NONE);
+  }
+
+  static Result split(Region2 a, Region2 b, Executor executor, Deadline deadline) {
+
+    // a curve which lies outside the other region's bounds can't intersect it, so only the rest are swept
+    Curve2[][] curves = {curves(a, b.bounds), curves(b, a.bounds)};
+    SweepEvents[] queues = {events(curves[0]), events(curves[1])};
+
     IMap<Curve2, DoubleAccumulator> intersections = new LinearMap<>();
 
+    // the sweep only gathers candidate pairs, as [a0, b0, a1, b1, ...]
+    IList<Curve2> candidates = new LinearList<>();
     Curve2[] cs = new Curve2[2];
-    for (; ; ) {
+    for (int events = 1; ; events++) {
       // find which region has the next endpoint, and consume that curve
-      int idx = SweepQueue.next(queues);
-      cs[idx] = queues[idx].take();
+      int idx = SweepEvents.next(queues);
+      int i = queues[idx].take();
 
-      if (cs[idx] == null) {
+      if (i < 0) {
         break;
       }
 
-      // check for intersections against all other "active" curves
+      if ((events & CHECK_INTERVAL - 1) == 0) {
+        int n = events;
+        deadline.check("split", () -> n + " of " + (curves[0].length + curves[1].length) + " curves swept");
+      }
+
+      cs[idx] = curves[idx][i];
       intersections.put(cs[idx], new DoubleAccumulator());
 
-      for (Curve2 c : queues[1 - idx].active()) {
-        cs[1 - idx] = c;
-        Vec2[] ts = cs[0].intersections(cs[1]);
+      // every other "active" curve is a candidate
+      SweepEvents other = queues[1 - idx];
+      for (int j = 0; j < other.activeCount(); j++) {
+        cs[1 - idx] = curves[1 - idx][other.active(j)];
+        candidates.addLast(cs[0]).addLast(cs[1]);
+      }
+    }
+
+    Candidates solved = new Candidates(candidates);
+    solved.solve(executor, deadline);
+
+    VertexUnion union = new VertexUnion();
+    merge(solved, intersections, union);
+
+    return result(a, b, intersections, union, deadline);
+  }
+
+  /**
+   * Same as {@link #split(Region2, Region2)}, but for regions where every curve is a {@link Line2}.  Each segment is
+   * packed into primitive arrays, and each pair of segments which overlap on the x-axis is checked and intersected
+   * without allocating, deferring to {@link Intersections} only for nearly parallel segments.  The pairs are
+   * intersected in sweep order on the calling thread, and the result is identical to the general case.
+   */
+  public static Result splitLines(Region2 a, Region2 b) {
+    return splitLines(a, b, Deadline.NONE);
+  }
+
+  static Result splitLines(Region2 a, Region2 b, Deadline deadline) {
+    Curve2[][] curves = {curves(a, b.bounds), curves(b, a.bounds)};
+    Segments[] segments = {new Segments(curves[0]), new Segments(curves[1])};
+    SweepEvents[] queues = {events(curves[0]), events(curves[1])};
 
-        for (int i = 0; i < ts.length; i++) {
-          //System.out.println(ts.length + " " + ts[i] + " " + cs[0].position(ts[i].x) + " " + cs[0].position(ts[i].x).sub(cs[1].position(ts[i].y)).length() + " " + ts[i].sub(ts[max(0, i - 1)]));
-          double t0 = ts[i].x;
-          double t1 = ts[i].y;
+    IMap<Curve2, DoubleAccumulator> intersections = new LinearMap<>();
+    VertexUnion union = new VertexUnion();
+    DoubleAccumulator acc = new DoubleAccumulator();
+
+    for (int events = 1; ; events++) {
+      int idx = SweepEvents.next(queues);
+      int i = queues[idx].take();
+
+      if (i < 0) {
+        break;
+      }
 
-          // register the intersection, and join the intersection points on each curve so that they exactly coincide
-          intersections.get(cs[0]).get().add(t0);
-          intersections.get(cs[1]).get().add(t1);
+      if ((events & CHECK_INTERVAL - 1) == 0) {
+        int n = events;
+        deadline.check("split", () -> n + " of " + (curves[0].length + curves[1].length) + " segments swept");
+      }
+
+      intersections.put(curves[idx][i], new DoubleAccumulator());
+
+      SweepEvents other = queues[1 - idx];
+      for (int k = 0; k < other.activeCount(); k++) {
+        int j = other.active(k);
+        int ia = idx == 0 ? i : j;
+        int ib = idx == 0 ? j : i;
+
+        if (!segments[0].overlaps(ia, segments[1], ib)) {
+          continue;
+        }
 
-          Vec2 p0 = cs[0].position(t0);
-          Vec2 p1 = cs[1].position(t1);
-          union.join(p0, p1);
+        Curve2 ca = curves[0][ia];
+        Curve2 cb = curves[1][ib];
+        acc.clear();
+        int count = Segments.intersections(segments[0], ia, ca, segments[1], ib, cb, acc);
+        for (int n = 0; n < count * 2; n += 2) {
+          double t0 = acc.get(n);
+          double t1 = acc.get(n + 1);
+          intersections.get(ca).get().add(t0);
+          intersections.get(cb).get().add(t1);
+          union.join(ca.position(t0), cb.position(t1));
         }
       }
     }
 
-    IMap<Curve2, DoubleAccumulator> deduped = intersections.mapValues((c, acc) -> dedupe(c, acc, union));
+    return result(a, b, intersections, union, deadline);
+  }
+
+  /**
+   * Given any number of regions, returns each region with new curve endpoints wherever it intersects one of the others,
+   * and a set describing those new vertices.  Every curve goes into a single sweep, and curves belonging to the same
+   * region are never compared, so this is equivalent to splitting each pair of regions, but without the quadratic
+   * number of passes.  Candidates are solved as in {@link #split(Region2, Region2, Executor)}.
+   */
+  public static Results split(Region2[] regions, Executor executor) {
+    int n = 0;
+    for (Region2 r : regions) {
+      for (Ring2 ring : r.rings) {
+        n += ring.curves.length;
+      }
+    }
+
+    // every curve, along with the region it belongs to
+    Curve2[] curves = new Curve2[n];
+    int[] owners = new int[n];
+    double[] starts = new double[n];
+    double[] ends = new double[n];
+    for (int i = 0, idx = 0; i < regions.length; i++) {
+      for (Ring2 ring : regions[i].rings) {
+        for (Curve2 c : ring.curves) {
+          curves[idx] = c;
+          owners[idx] = i;
+          starts[idx] = c.start().x;
+          ends[idx] = c.end().x;
+          idx++;
+        }
+      }
+    }
 
-    return new Result(
-      split(a, deduped, union),
-      split(b, deduped, union),
+    IMap<Curve2, DoubleAccumulator> intersections = new LinearMap<>();
+    for (Curve2 c : curves) {
+      intersections.put(c, new DoubleAccumulator());
+    }
+
+    // with many regions, most curves which overlap on the x-axis won't overlap on the y-axis
+    IList<Curve2> candidates = new LinearList<>();
+    SweepEvents queue = new SweepEvents(starts, ends);
+    for (int i = queue.take(); i >= 0; i = queue.take()) {
+      Box2 bounds = curves[i].bounds();
+      for (int k = 0; k < queue.activeCount(); k++) {
+        int j = queue.active(k);
+        if (owners[i] != owners[j] && bounds.intersects(curves[j].bounds(), SPATIAL_EPSILON)) {
+          candidates.addLast(owners[i] < owners[j] ? curves[i] : curves[j]);
+          candidates.addLast(owners[i] < owners[j] ? curves[j] : curves[i]);
+        }
+      }
+    }
+
+    Candidates solved = new Candidates(candidates);
+    solved.solve(executor, Deadline.NONE);
+
+    VertexUnion union = new VertexUnion();
+    merge(solved, intersections, union);
+
+    IMap<Curve2, DoubleAccumulator> deduped = intersections.mapValues((c, acc) -> dedupe(c, acc, union));
+    return new Results(
+      Arrays.stream(regions)
+        .map(r -> split(r, deduped, union))
+        .toArray(Region2[]::new),
       union.roots());
   }
 
+  /**
+   * Registers each solved intersection, in sweep order, so that the vertex union is the same regardless of how the
+   * candidates were solved.
+   */
+  private static void merge(Candidates solved, IMap<Curve2, DoubleAccumulator> intersections, VertexUnion union) {
+    for (int i = 0; i < solved.size; i++) {
+      Curve2 ca = solved.a(i);
+      Curve2 cb = solved.b(i);
+      DoubleAccumulator ts = solved.chunk(i);
+
+      for (int j = solved.offsets[i], end = j + solved.counts[i] * 2; j < end; j += 2) {
+        double t0 = ts.get(j);
+        double t1 = ts.get(j + 1);
+
+        // register the intersection, and join the intersection points on each curve so that they exactly coincide
+        intersections.get(ca).get().add(t0);
+        intersections.get(cb).get().add(t1);
+
+        Vec2 p0 = ca.position(t0);
+        Vec2 p1 = cb.position(t1);
+        union.join(p0, p1);
+      }
+    }
+  }
+
+  private static Result result(Region2 a, Region2 b, IMap<Curve2, DoubleAccumulator> intersections, VertexUnion union, Deadline deadline) {
+    deadline.check("split", () -> "deduping intersections on " + intersections.size() + " curves");
+    IMap<Curve2, DoubleAccumulator> deduped = intersections.mapValues((c, acc) -> dedupe(c, acc, union));
+
+    deadline.check("split", () -> "splitting " + a.rings.length + " rings");
+    Region2 sa = split(a, deduped, union);
+
+    deadline.check("split", () -> "splitting " + b.rings.length + " rings");
+    Region2 sb = split(b, deduped, union);
+
+    return new Result(sa, sb, union.roots());
+  }
+
   private static Region2 split(Region2 region, IMap<Curve2, DoubleAccumulator> splits, VertexUnion union) {
     return new Region2(
       Arrays.stream(region.rings)
@@ -178,7 +608,15 @@ public class Split {
   private static Ring2 split(Ring2 r, IMap<Curve2, DoubleAccumulator> splits, VertexUnion union) {
     IList<Curve2> curves = new LinearList<>();
     for (Curve2 c : r.curves) {
-      DoubleAccumulator acc = splits.get(c).get();
+      DoubleAccumulator acc = splits.get(c, null);
+      if (acc == null || acc.size() == 0) {
+        c = union.adjust(c);
+        if (c != null) {
+          curves.addLast(c);
+        }
+        continue;
+      }
+
       for (Curve2 cp : c.split(acc.toArray())) {
         cp = union.adjust(cp);
         if (cp != null) {
@@ -190,12 +628,49 @@ public class Split {
     return curves.size() == 0 ? null : new Ring2(curves);
   }
 
-  private static void add(Region2 region, SweepQueue<Curve2> queue) {
+  private static boolean isPolygonal(Region2 region) {
+    for (Ring2 r : region.rings) {
+      for (Curve2 c : r.curves) {
+        if (!(c instanceof Line2)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static Curve2[] curves(Region2 region) {
+    IList<Curve2> curves = new LinearList<>();
     for (Ring2 r : region.rings()) {
       for (Curve2 c : r.curves) {
-        queue.add(c, c.start().x, c.end().x);
+        curves.addLast(c);
       }
     }
+    return curves.toArray(Curve2[]::new);
+  }
+
+  private static Curve2[] curves(Region2 region, Box2 bounds) {
+    IList<Curve2> curves = new LinearList<>();
+    for (Ring2 r : region.rings()) {
+      if (r.bounds.intersects(bounds, SPATIAL_EPSILON)) {
+        for (Curve2 c : r.curves) {
+          if (c.bounds().intersects(bounds, SPATIAL_EPSILON)) {
+            curves.addLast(c);
+          }
+        }
+      }
+    }
+    return curves.toArray(Curve2[]::new);
+  }
+
+  private static SweepEvents events(Curve2[] curves) {
+    double[] starts = new double[curves.length];
+    double[] ends = new double[curves.length];
+    for (int i = 0; i < curves.length; i++) {
+      starts[i] = curves[i].start().x;
+      ends[i] = curves[i].end().x;
+    }
+    return new SweepEvents(starts, ends);
   }
 
 
@@ -1,10 +1,27 @@
 (ns artifex.benchmark-test
   (:require
    [clojure.test :refer :all]
-   [criterium.core :as c])
+   [criterium.core :as c]
+   [artifex.test-utils :refer :all])
   (:import
+   [java.lang.management
+    ManagementFactory]
+   [java.util.concurrent
+    Executor
+    ForkJoinPool]
+   [io.lacuna.artifex.utils
+    DoubleAccumulator
+    IntersectionCache
+    Intersections]
+   [io.lacuna.artifex.utils.regions
+    Arrangement
+    Expression
+    Split]
    [io.lacuna.artifex
+    Curve2
+    Line2
     Region2
+    Ring2
     Matrix3
     Vec2
     Vec3
@@ -31,3 +48,159 @@
                   (map #(.transform % (Matrix3/translate (rand) (rand)))))]
     (c/quick-bench
       (reduce #(.intersection ^Region2 %1 %2) regions))))
+
+;; allocation
+
+(defn allocated-bytes []
+  (.getThreadAllocatedBytes
+    ^com.sun.management.ThreadMXBean (ManagementFactory/getThreadMXBean)
+    (.getId (Thread/currentThread))))
+
+(defn allocation-rate
+  "Returns the bytes allocated per invocation of `f`, which is called `n` times."
+  [n f]
+  (let [start (allocated-bytes)]
+    (dotimes [_ n]
+      (f))
+    (/ (- (allocated-bytes) start) (double n))))
+
+(deftest ^:benchmark benchmark-curve-intersections
+  (let [n      1e5
+        curves (->> #(random-curve (+ 3 (rand-int 2)) 0 1)
+                 (repeatedly (* 2 n))
+                 (partition 2)
+                 vec)
+        acc    (DoubleAccumulator.)
+        object #(doseq [[a b] curves]
+                  (Intersections/fatLineCurveCurve a b))
+        prim   #(doseq [[a b] curves]
+                  (.clear acc)
+                  (Intersections/fatLineCurveCurve a b acc))]
+
+    ;; warm up before measuring allocations
+    (object)
+    (prim)
+
+    (println "fat lines:" (/ (allocation-rate 3 object) n) "bytes per pair")
+    (c/quick-bench (object))
+
+    (println "primitive fat lines:" (/ (allocation-rate 3 prim) n) "bytes per pair")
+    (c/quick-bench (prim))))
+
+(deftest ^:benchmark benchmark-cached-regions
+  (let [regions (->> (cycle [(.region (Ring2/circle)) (.region (Ring2/square))])
+                  (take 1e2)
+                  (map #(.transform % (Matrix3/translate (rand) (rand))))
+                  vec)
+        fold    #(reduce (fn [^Region2 a b] (.intersection a b)) regions)
+        cache   (IntersectionCache. 1e4)]
+
+    (println "uncached:")
+    (c/quick-bench (fold))
+
+    (try
+      (Intersections/setCache cache)
+      (println "cached:")
+      (c/quick-bench (fold))
+      (println cache)
+      (finally
+        (Intersections/setCache nil)))))
+
+(deftest ^:benchmark benchmark-union-all
+  (let [regions (->> (range 1e3)
+                  (map (fn [_] (.transform (.region (Ring2/circle)) (Matrix3/translate (* 32 (rand)) (* 32 (rand))))))
+                  vec)]
+
+    (println "folded union:")
+    (c/quick-bench (reduce (fn [^Region2 a b] (.union a b)) regions))
+
+    (println "unionAll:")
+    (c/quick-bench (Region2/unionAll regions))))
+
+(deftest ^:benchmark benchmark-cascaded-union
+  (let [regions (->> (range 1e3)
+                  (map (fn [_] (.transform (.region (Ring2/circle)) (Matrix3/translate (* 32 (rand)) (* 32 (rand))))))
+                  vec)]
+
+    (println "unionAll:")
+    (c/quick-bench (Region2/unionAll regions))
+
+    (println "cascaded union:")
+    (c/quick-bench (Region2/cascadedUnion regions nil))
+
+    (println "parallel cascaded union:")
+    (c/quick-bench (Region2/cascadedUnion regions (ForkJoinPool/commonPool)))))
+
+(deftest ^:benchmark benchmark-polygons
+  (let [polygon (fn [cx cy]
+                  (let [vs (vec (for [i (range 2000)
+                                      :let [t (/ (* 2 Math/PI i) 2000)
+                                            r (+ 0.7 (* 0.3 (rand)))]]
+                                  (Vec2. (+ cx (* r (Math/cos t))) (+ cy (* r (Math/sin t))))))]
+                    (.region (Ring2/of (into-array Curve2 (map #(Line2/line %1 %2) vs (concat (rest vs) [(first vs)])))))))
+        a       (polygon 0 0)
+        b       (polygon 0.3 0.2)]
+
+    (println "general split:")
+    (c/quick-bench (let [^Executor executor nil] (Split/split ^Region2 a ^Region2 b executor)))
+
+    (println "line split:")
+    (c/quick-bench (Split/splitLines a b))
+
+    (println "polygon union:")
+    (c/quick-bench (.union ^Region2 a b))))
+
+(deftest ^:benchmark benchmark-point-index
+  (let [region (->> (range 1e3)
+                 (map (fn [_] (.transform (.region (Ring2/circle)) (Matrix3/translate (* 64 (rand)) (* 64 (rand))))))
+                 Region2/unionAll)
+        index  (.index ^Region2 region)
+        points (vec (repeatedly 1e3 #(Vec2. (* 64 (rand)) (* 64 (rand)))))]
+
+    (println "region test:")
+    (c/quick-bench (doseq [p points] (.test ^Region2 region p)))
+
+    (println "index test:")
+    (c/quick-bench (doseq [p points] (.test index ^Vec2 p)))))
+
+(deftest ^:benchmark benchmark-bulk-contains
+  (let [region (->> (range 1e3)
+                 (map (fn [_] (.transform (.region (Ring2/circle)) (Matrix3/translate (* 64 (rand)) (* 64 (rand))))))
+                 Region2/unionAll)
+        xs     (double-array (repeatedly 1e5 #(* 64 (rand))))
+        ys     (double-array (repeatedly 1e5 #(* 64 (rand))))
+        out    (boolean-array 1e5)]
+
+    (println "per-point contains:")
+    (c/quick-bench (dotimes [i 1e5] (aset out i (.contains ^Region2 region (Vec2. (aget xs i) (aget ys i))))))
+
+    (println "bulk contains:")
+    (c/quick-bench (.contains ^Region2 region xs ys out))))
+
+(deftest ^:benchmark benchmark-arrangement
+  (let [regions (->> (range 1e3)
+                  (map (fn [_] (.transform (.region (Ring2/circle)) (Matrix3/translate (* 64 (rand)) (* 64 (rand))))))
+                  vec)]
+
+    (println "folded union:")
+    (c/quick-bench (reduce (fn [^Region2 a b] (.union a b)) regions))
+
+    (println "arrangement:")
+    (c/quick-bench (.region ^Arrangement (reduce (fn [^Arrangement a ^Region2 b] (.add a b)) (Arrangement.) regions)))))
+
+(deftest ^:benchmark benchmark-expression
+  (let [blob      (fn []
+                    (->> (range 100)
+                      (map (fn [_] (.transform (.region (Ring2/circle)) (Matrix3/translate (* 16 (rand)) (* 16 (rand))))))
+                      Region2/unionAll))
+        [a b c d] (repeatedly 4 blob)]
+
+    (println "chained operations:")
+    (c/quick-bench (.difference (.union ^Region2 a b) (.intersection ^Region2 c d)))
+
+    (println "expression:")
+    (c/quick-bench
+      (.evaluate
+        (.difference
+          (.union (Expression/of a) (Expression/of b))
+          (.intersection (Expression/of c) (Expression/of d)))))))
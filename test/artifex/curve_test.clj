@@ -105,3 +105,12 @@
   (doseq [points [2 3 4]]
     (dotimes [_ 1e3]
       (check-bounds (random-curve points -10 10)))))
+
+(deftest test-hull
+  (doseq [points [2 3 4]]
+    (dotimes [_ 1e3]
+      (let [^Curve2 c (random-curve points -10 10)
+            hull      (.hull c)
+            bounds    (.bounds c)]
+        (is (identical? bounds (.bounds c)))
+        (is (Box/equals hull (.union hull bounds) Scalars/EPSILON) (str c " " hull " " bounds))))))
@@ -60,3 +60,32 @@
                        d)]
           (if (<= 0 root 1)
             (is (Scalars/equals result 0 1e-14) [(count roots) result])))))))
+
+(deftest test-quartic
+  (are [expected a b c d e]
+      (approx= (set (map double expected))
+        (set (Equations/solveQuartic a b c d e)))
+
+    [1 2 3 4]  1 -10 35 -50 24
+    [-1 1 2]   1 -3 1 3 -2
+    [-1 1]     1 0 0 0 -1
+    []         1 0 0 0 1
+    [1 2 3]    0 1 -6 11 -6
+
+    ;; clustered and double roots, where a critical point lies on the x-axis next to a bracketed root
+    [(- (Math/sqrt 1e-7)) 0 (Math/sqrt 1e-7)] 1 0 -1e-7 0 0
+    [(- (Math/sqrt 1e-7)) (Math/sqrt 1e-7)]   1 0 -2e-7 0 1e-14))
+
+(deftest test-quartic-random
+  (dotimes [_ 1e5]
+    (let [[a b c d e] (repeatedly 5 #(- (* 20 (rand)) 10))
+          roots (Equations/solveQuartic a b c d e)]
+      (is (every? #(apply < %) (partition 2 1 roots)))
+      (doseq [root roots]
+        (let [result (+ (* a root root root root)
+                       (* b root root root)
+                       (* c root root)
+                       (* d root)
+                       e)]
+          (if (<= 0 root 1)
+            (is (Scalars/equals result 0 1e-12) [(count roots) result])))))))
@@ -6,15 +6,24 @@
    [java.util
     Arrays]
    [io.lacuna.artifex
+    Bezier2$QuadraticBezier2
     Box
+    Region2
+    Ring2
     Vec
     Vec2
     Curve2
-    Line2]
+    Line2
+    Matrix3]
    [io.lacuna.artifex.utils
     Scalars
     DoubleAccumulator
-    Intersections]))
+    IntersectionCache
+    IntersectionStats
+    Intersections
+    Intersections$IntersectionSink]
+   [io.lacuna.artifex.utils.regions
+    Split]))
 
 (defn compare-intersections [expected f p q]
   (let [vs (->> [p q]
@@ -53,16 +62,171 @@
     [[0 0] [1 0]]
     [[0.5 0] [1.5 0]]))
 
+(deftest test-accumulated-intersections
+  (dotimes [_ 1e3]
+    (let [^Curve2 a (random-curve (+ 2 (rand-int 3)) 0 1)
+          ^Curve2 b (random-curve (+ 2 (rand-int 3)) 0 1)
+          acc       (doto (DoubleAccumulator.) (.add -1.0 -1.0))
+          n         (.intersections a b acc)]
+      (is (= (+ 2 (* 2 n)) (.size acc)))
+      (is (= [-1.0 -1.0] [(.get acc 0) (.get acc 1)]))
+      (doseq [i (range n)]
+        (let [u (.position a (.get acc (+ 2 (* 2 i))))
+              v (.position b (.get acc (+ 3 (* 2 i))))]
+          (is (< (.length (.sub u v)) 1e-6)))))))
+
+(deftest test-intersect-all
+  (let [as     (into-array Curve2 (repeatedly 100 #(random-curve (+ 2 (rand-int 3)) 0 10)))
+        bs     (into-array Curve2 (repeatedly 100 #(random-curve (+ 2 (rand-int 3)) 0 10)))
+        actual (atom #{})]
+    (Intersections/intersectAll as bs
+      (reify Intersections$IntersectionSink
+        (intersection [_ i j s t]
+          (swap! actual conj [i j s t]))))
+    (is (= (set
+             (for [i (range (count as))
+                   j (range (count bs))
+                   ^Vec2 v (.intersections ^Curve2 (aget as i) ^Curve2 (aget bs j))]
+               [i j (.x v) (.y v)]))
+          @actual))))
+
+;; every intersection found by fat line clipping should have an equivalent found analytically
+(deftest test-quadratic-intersections
+  (dotimes [_ 1e4]
+    (let [^Curve2 a (random-curve 3 0 1)
+          ^Curve2 b (random-curve 3 0 1)
+          expected  (doto (DoubleAccumulator.) (->> (Intersections/fatLineCurveCurve a b)))
+          actual    (DoubleAccumulator.)
+          n         (Intersections/quadraticQuadratic a b actual)
+          pairs     (fn [^DoubleAccumulator acc]
+                      (->> acc .toArray (partition 2) (map #(apply v %))))]
+      (when-not (neg? n)
+        (doseq [^Vec2 i (pairs actual)]
+          (is (< (.length (.sub (.position a (.x i)) (.position b (.y i)))) 1e-5)))
+        (doseq [^Vec2 i (pairs expected)]
+          (is (some #(Vec/equals i % 1e-5) (pairs actual))))))))
+
+(deftest test-intersection-cache
+  (let [pairs (vec (repeatedly 1e3 #(vector (random-curve (+ 2 (rand-int 3)) 0 1) (random-curve (+ 2 (rand-int 3)) 0 1))))
+        intersect (fn [[^Curve2 a ^Curve2 b]] (mapv #(vector (.x ^Vec2 %) (.y ^Vec2 %)) (.intersections a b)))
+        expected (mapv intersect pairs)
+        cache (IntersectionCache. 100)]
+    (try
+      (Intersections/setCache cache)
+      (is (= expected (mapv intersect pairs)))
+      (is (<= (.size cache) 100))
+      (is (pos? (.evictions cache)))
+
+      ;; identical curves, which aren't the same objects, should hit
+      (.clear cache)
+      (let [pairs (take 50 pairs)
+            copy  (fn [[^Curve2 a ^Curve2 b]] [(.reverse (.reverse a)) (.reverse (.reverse b))])]
+        (is (= (map intersect pairs) (map intersect pairs) (map (comp intersect copy) pairs)))
+        (is (= (.misses cache) (.size cache)))
+        (is (= (* 2 (.size cache)) (.hits cache))))
+      (finally
+        (Intersections/setCache nil)))))
+
+(deftest test-intersection-stats
+  (let [pairs     (vec (repeatedly 1e3 #(vector (random-curve 4 0 1) (random-curve 4 0 1))))
+        intersect #(doseq [[^Curve2 a ^Curve2 b] pairs] (.intersections a b))
+        stats     (IntersectionStats/local)]
+    (try
+      (IntersectionStats/enable)
+      (.reset stats)
+      (intersect)
+      (let [s (.snapshot stats)]
+        (is (pos? (.calls s)))
+        (is (<= (.calls s) (count pairs)))
+        (is (<= (.calls s) (.iterations s)))
+        (is (pos? (.peakDepth s)))
+        (is (>= (.calls (IntersectionStats/totals)) (.calls s)) "totals include this thread")
+
+        (IntersectionStats/disable)
+        (intersect)
+        (is (= (str s) (str (.snapshot stats)))))
+
+      ;; a split large enough to be solved in parallel is still attributed to the calling thread
+      (let [region (fn [dx]
+                     (Region2. (map #(.transform (Ring2/circle) (Matrix3/translate (+ dx (* 0.01 %)) 0)) (range 100))))
+            a      (region 0)
+            b      (region 0.005)]
+        (IntersectionStats/enable)
+        (.reset stats)
+        (let [before (.calls (IntersectionStats/totals))]
+          (Split/split a b)
+          (is (pos? (.calls (.snapshot stats))))
+          (is (= (- (.calls (IntersectionStats/totals)) before) (.calls (.snapshot stats))))))
+
+      (let [name (IntersectionStats/registerMBean)]
+        (is (= name (IntersectionStats/registerMBean)))
+        (is (= (.calls (IntersectionStats/totals))
+              (.getAttribute (java.lang.management.ManagementFactory/getPlatformMBeanServer) name "Calls"))))
+      (finally
+        (IntersectionStats/disable)))))
+
+(defn reflect [^Curve2 c ^Vec2 o ^Vec2 d]
+  (let [theta (Math/atan2 (.y d) (.x d))]
+    (.transform c
+      (-> (Matrix3/translate o)
+        (.mul (Matrix3/rotate theta))
+        (.mul (Matrix3/scale 1 -1))
+        (.mul (Matrix3/rotate (- theta)))
+        (.mul (Matrix3/translate (.negate o)))))))
+
+(defn elevate
+  "A cubic curve with the same shape as the quadratic curve `c`."
+  [^Bezier2$QuadraticBezier2 c]
+  (let [p0 (.p0 c), p1 (.p1 c), p2 (.p2 c)]
+    (curve p0 (.add p0 (.mul (.sub p1 p0) (/ 2.0 3))) (.add p2 (.mul (.sub p1 p2) (/ 2.0 3))) p2)))
+
+(deftest test-tangent-intersections
+  ;; a curve reflected across its own tangent line touches it without crossing, which stalls clipping
+  (doseq [[degree elevate?] [[3 false] [3 true] [4 false]]]
+    (dotimes [_ 300]
+      (let [^Curve2 a (random-curve degree 0 1)
+            t         (+ 0.2 (rand 0.6))
+            p         (.position a t)
+            ^Curve2 b (reflect (if elevate? (elevate a) a) p (.direction a t))]
+        ;; quadratic pairs are otherwise solved analytically, so clip them directly as well
+        (doseq [[^Curve2 a ^Curve2 b] [[a b] [b a]]
+                found [(seq (.intersections a b))
+                    (let [acc (DoubleAccumulator.)]
+                      (Intersections/fatLineCurveCurve a b acc)
+                      (->> acc .toArray (partition 2) (map #(apply v %))))]]
+          (doseq [^Vec2 i found]
+            (is (< (.length (.sub (.position a (.x i)) (.position b (.y i)))) 1e-6)))
+          ;; both curves pass through `p` at `t`, and a tangency may be reported anywhere along the span where they're
+          ;; within FAT_LINE_SPATIAL_EPSILON of each other, so the curves should still be together halfway to `p`
+          (is (some
+                (fn [^Vec2 i]
+                  (< (.length (.sub (.position a (/ (+ t (.x i)) 2)) (.position b (/ (+ t (.y i)) 2)))) 1e-6))
+                found)))))))
+
 (defn quantile [ary q]
   (aget ary (int (* (dec (alength ary)) q))))
 
 (deftest test-random-collinear-curves
-  (doseq [degree [2 3 4]]
-    (let [c (random-curve degree 0 1)
-          [start end] (sort (repeatedly 2 #(+ 0.01 (* 0.98 (rand)))))]
-      (when (< 1e-10 (- end start))
-        (let [c' (second (.split c (double-array [start end])))]
-          ())))))
+  (let [stats (IntersectionStats/local)]
+    (try
+      (IntersectionStats/enable)
+      (dotimes [_ 1e3]
+        (doseq [degree [2 3 4]]
+          (let [^Curve2 c (random-curve degree 0 1)
+                [start end] (sort (repeatedly 2 #(+ 0.01 (* 0.98 (rand)))))]
+            (when (< 1e-3 (- end start))
+              (let [^Curve2 c' (second (.split c (double-array [start end])))]
+                (.reset stats)
+                (let [ts (.intersections c c')]
+                  (is (= 2 (count ts)))
+                  (is (Vec/equals (v start 0) (first ts) 1e-6))
+                  (is (Vec/equals (v end 1) (second ts) 1e-6)))
+                (is (= [(v 0 1) (v 1 0)] (vec (.intersections c (.reverse c)))))
+
+                ;; overlapping curves are found before any clipping
+                (is (zero? (.iterations stats))))))))
+      (finally
+        (IntersectionStats/disable)))))
 
 (defn examine-intersections [a b]
   (let [a (parse-curve a)
@@ -7,6 +7,7 @@
    [clojure.test.check :as tc])
   (:import
    [java.util.concurrent
+    Executor
     Executors
     ThreadFactory
     TimeUnit]
@@ -14,19 +15,42 @@
     LinearList
     List]
    [io.lacuna.artifex.utils
+    Assignment
     Combinatorics
+    Crossings
+    Deadline
+    DeadlineExceededException
     Equations
     Scalars
+    Scanline
+    SpatialHash
+    UnionFind
     EdgeList
-    Intersections]
+    Intersections
+    Intersections$IntersectionSink
+    PointIndex
+    RTree
+    SweepEvents
+    SweepLine
+    SweepQueue]
    [io.lacuna.artifex.utils.regions
-    Clip]
+    Arrangement
+    Clip
+    Expression
+    Expression$FillRule
+    Split
+    Split$Result
+    Split$Sweep]
    [io.lacuna.artifex
+    Box
+    Box2
     Interval
     Bezier2
     Curve2
+    Line2
     Region2
     Ring2
+    Ring2$Result
     Vec2
     Matrix3]))
 
@@ -159,6 +183,420 @@
                                    true)))))]
       (< (count invalid-points) 2))))
 
+;;;
+
+(defn- circles [seed n]
+  (let [rng (java.util.Random. seed)]
+    (->> (repeatedly n #(vector (.nextDouble rng) (.nextDouble rng) (+ 0.1 (.nextDouble rng)) (+ 0.1 (.nextDouble rng))))
+      (map #(.transform (Ring2/circle) (matrix %)))
+      (into-array Ring2)
+      Region2/of)))
+
+(defn- region-curves [^Region2 r]
+  (for [^Ring2 ring (.rings r)
+        ^Curve2 c (.curves ring)]
+    [(.start c) (.end c) (.position c 0.5)]))
+
+(defn- assert-same-split [^Split$Result expected ^Split$Result actual]
+  (is (= (.splits expected) (.splits actual)))
+  (is (= (region-curves (.a expected)) (region-curves (.a actual))))
+  (is (= (region-curves (.b expected)) (region-curves (.b actual)))))
+
+(defn- assert-same-region
+  "Asserts that `expected` and `actual` contain the same points, sampled in and around their bounds, ignoring any
+   points which lie on either region's edges."
+  [^Region2 expected ^Region2 actual]
+  (let [rng    (java.util.Random. 0)
+        bounds (.union (.bounds expected) (.bounds actual))]
+    (when-not (.isEmpty bounds)
+      (dotimes [_ 1e3]
+        (let [p (.lerp bounds (Vec2. (- (* 1.2 (.nextDouble rng)) 0.1) (- (* 1.2 (.nextDouble rng)) 0.1)))]
+          (when-not (or (.curve (.test expected p)) (.curve (.test actual p)))
+            (is (= (.contains expected p) (.contains actual p)))))))))
+
+(defn- sample-points
+  "Returns random points in [0, 2), along with points on the region's edges and vertices."
+  [^Region2 region]
+  (let [rng (java.util.Random. 0)]
+    (concat
+      (repeatedly 1e3 #(Vec2. (* 2 (.nextDouble rng)) (* 2 (.nextDouble rng))))
+      (apply concat (region-curves region)))))
+
+(defn- assert-same-result [^Ring2$Result expected ^Ring2$Result actual]
+  (is (= (.inside expected) (.inside actual)))
+  (is (identical? (.curve expected) (.curve actual))))
+
+(defn- split-serial
+  "Splits `a` and `b` on the calling thread, which is what a nil executor means."
+  [^Region2 a ^Region2 b]
+  (let [^Executor executor nil]
+    (Split/split a b executor)))
+
+(deftest test-parallel-split
+  (let [a        (circles 1 40)
+        b        (circles 2 40)
+        executor (Executors/newFixedThreadPool 4)]
+    (try
+      (assert-same-split (split-serial a b) (Split/split a b executor))
+      (finally
+        (.shutdown executor)))))
+
+(deftest test-vertex-union
+  (let [eps  1e-10
+        hash (SpatialHash. eps)
+        rng  (java.util.Random. 0)
+        ps   (vec (repeatedly 1e3 #(vector (.nextDouble rng) (.nextDouble rng))))]
+    (doseq [[x y] ps]
+      (.add hash x y))
+    (doseq [[i [x y]] (map-indexed vector ps)
+            dx [0 (* 0.9 eps) (* -0.9 eps)]
+            dy [0 (* 0.9 eps) (* -0.9 eps)]]
+      (is (= i (.get hash (+ x dx) (+ y dy)))))
+    (is (= -1 (.get hash 2 2)))
+    (is (= -1 (.get hash (+ (first (first ps)) (* 2 eps)) (second (first ps)))))
+
+    ;; far from the origin, the cells saturate at the bounds of a long
+    (doseq [x [1e10 -1e10 1e300 -1e300]]
+      (let [i (.add hash x x)]
+        (is (= i (.get hash x x)))
+        (is (= -1 (.get hash x (- x)))))))
+
+  (let [sets (UnionFind.)
+        n    1000]
+    (dotimes [_ n]
+      (.add sets))
+    (doseq [i (range 1 n 2)]
+      (.union sets i (dec i)))
+    (doseq [i (range 0 n 4)]
+      (.union sets i (+ i 2)))
+    (is (= (/ n 4) (count (distinct (map #(.find sets %) (range n))))))
+    (is (= (.find sets 0) (.find sets 3)))
+    (is (not= (.find sets 0) (.find sets 4)))))
+
+(deftest test-rtree
+  (let [rng   (java.util.Random. 0)
+        box   #(let [x (.nextDouble rng), y (.nextDouble rng)]
+                 (Box/box (Vec2. x y) (Vec2. (+ x (* % (.nextDouble rng))) (+ y (* % (.nextDouble rng))))))
+        boxes (vec (repeatedly 1e3 #(box 0.05)))
+        tree  (RTree. (into-array Box2 boxes))]
+    (dotimes [_ 1e2]
+      (let [^Box2 b  (box 0.2)
+            expected (->> boxes (keep-indexed #(when (.intersects b ^Box2 %2) %1)) set)
+            actual   (atom #{})]
+        (.search tree b 0 (reify java.util.function.IntConsumer (accept [_ i] (swap! actual conj i))))
+        (is (= expected @actual))
+        (is (= (boolean (seq expected)) (.intersects tree b 0)))))
+    (is (not (.intersects (RTree. (into-array Box2 [])) (box 1) 0)))))
+
+(defn- assignment-cost [costs assignment]
+  (->> assignment
+    (map-indexed (fn [i j] (if (neg? j) 0 (aget ^doubles (aget ^"[[D" costs i) j))))
+    (reduce +)))
+
+(deftest test-assignment
+  (let [rng (java.util.Random. 0)]
+    (dotimes [_ 1e3]
+      (let [n     (inc (.nextInt rng 4))
+            m     (inc (.nextInt rng 4))
+            costs (into-array (for [_ (range n)]
+                                (double-array (for [_ (range m)]
+                                                (if (zero? (.nextInt rng 4)) Double/POSITIVE_INFINITY (.nextDouble rng))))))
+            actual (vec (Assignment/solve costs))
+            ;; every way of assigning rows to columns, keeping only the finite pairings, which is exhaustive for up to
+            ;; four rows and columns
+            candidates (->> (Combinatorics/permutations (LinearList/from (range (max n m))))
+                         (map vec)
+                         (map (fn [p]
+                                (vec (for [i (range n)
+                                           :let [j (nth p i)]]
+                                       (if (and (< -1 j m) (Double/isFinite (aget ^doubles (aget costs i) j))) j -1))))))
+            size   #(count (remove neg? %))
+            best   (apply max (map size candidates))]
+        (is (= (count (distinct (remove neg? actual))) (size actual)))
+        (is (= best (size actual)))
+        (is (< (- (assignment-cost costs actual)
+                  (apply min (map #(assignment-cost costs %) (filter #(= best (size %)) candidates))))
+              1e-9))))))
+
+(deftest test-disjoint-rings
+  (let [rings  (for [x (range 8), y (range 8)]
+                 (.transform (Ring2/circle) (Matrix3/translate (* 3 x) (* 3 y))))
+        region (Region2/of (into-array Ring2 rings))
+        square (.region (.transform (Ring2/square) (Matrix3/translate 0.5 0.5)))]
+    ;; only the ring which overlaps the square is modified, and the rest are carried over as-is
+    (doseq [[^Region2 r n] [[(.union region square) 64]
+                            [(.difference region square) 64]
+                            [(.intersection region square) 1]]]
+      (is (= n (count (.rings r))))
+      (is (= (if (= 1 n) 0 63) (count (filter (set (.rings r)) rings)))))))
+
+;; every pair of overlapping intervals from different queues, in the order they're found
+(defn- sweep-pairs [take next active]
+  (loop [acc []]
+    (let [idx (next)
+          v   (take idx)]
+      (if (nil? v)
+        acc
+        (recur (into acc (map #(if (zero? idx) [v %] [% v]) (active (- 1 idx)))))))))
+
+(deftest test-sweep-events
+  (let [rng       (java.util.Random. 0)
+        intervals (vec (for [_ (range 2)]
+                         (vec (repeatedly 1000 #(let [x (.nextDouble rng)] [x (+ x (* 0.01 (.nextDouble rng)))])))))
+        queues    (into-array SweepQueue (repeatedly 2 #(SweepQueue.)))
+        events    (into-array SweepEvents
+                    (for [is intervals]
+                      (SweepEvents. (double-array (map first is)) (double-array (map second is)))))]
+    (doseq [i (range 2)
+            [j [a b]] (map-indexed vector (get intervals i))]
+      (.add ^SweepQueue (aget queues i) j a b))
+    (is (= (set (sweep-pairs #(.take ^SweepQueue (aget queues %)) #(SweepQueue/next queues)
+                  #(seq (.active ^SweepQueue (aget queues %)))))
+          (set (sweep-pairs #(let [i (.take ^SweepEvents (aget events %))] (when-not (neg? i) i)) #(SweepEvents/next events)
+                 #(let [^SweepEvents e (aget events %)] (map (fn [i] (.active e i)) (range (.activeCount e))))))))))
+
+(defn- bands [seed n]
+  (let [rng (java.util.Random. seed)]
+    (->> (range n)
+      (map #(.transform (Ring2/square) (matrix [(* 0.1 (.nextDouble rng)) (* 0.01 %) 100 (+ 0.004 (* 0.002 (.nextDouble rng)))])))
+      (into-array Ring2)
+      Region2/of)))
+
+(defn- all-curves [^Region2 r]
+  (into-array Curve2 (mapcat #(.curves ^Ring2 %) (.rings r))))
+
+(defn- sink-pairs [f]
+  (let [acc (atom #{})]
+    (f (reify Intersections$IntersectionSink
+         (intersection [_ i j s t]
+           (swap! acc conj [i j (Math/round (* s 1e5)) (Math/round (* t 1e5))]))))
+    @acc))
+
+(deftest test-scanline
+  (let [region  (.difference (Region2/unionAll (map #(Region2/of (into-array [%])) (.rings (circles 0 20))))
+                  (Region2/unionAll (map #(Region2/of (into-array [%])) (.rings (circles 1 10)))))
+        points  (sample-points region)
+        results (.test (Scanline. region)
+                  (double-array (map #(.x ^Vec2 %) points))
+                  (double-array (map #(.y ^Vec2 %) points)))]
+    (doseq [[^Vec2 p r] (map vector points results)]
+      (assert-same-result (.test region p) r))))
+
+(deftest test-ordered-sweep
+  (doseq [[a b] [[(circles 1 40) (circles 2 40)]
+                 [(bands 1 100) (.transform (bands 2 100) (Matrix3/translate 0 0.003))]]]
+    (let [as (all-curves a)
+          bs (all-curves b)]
+      (is (= (sink-pairs #(Intersections/intersectAll as bs %))
+            (sink-pairs #(SweepLine/intersections as bs %)))))
+
+    (assert-same-split (split-serial a b) (Split/split a b Split$Sweep/ORDERED))
+    (is (= (region-curves (.union a b)) (region-curves (Clip/union a b Split$Sweep/ORDERED Deadline/NONE))))))
+
+(defn- tiles [n]
+  (for [x (range n)
+        y (range n)]
+    (.transform (.region (Ring2/square)) (Matrix3/translate x y))))
+
+(defn- star [seed n cx cy]
+  (let [rng (java.util.Random. seed)
+        vs  (vec (for [i (range n)
+                       :let [t (/ (* 2 Math/PI i) n)
+                             r (+ 0.7 (* 0.3 (.nextDouble rng)))]]
+                   (Vec2. (+ cx (* r (Math/cos t))) (+ cy (* r (Math/sin t))))))]
+    (.region
+      (Ring2/of
+        (into-array Curve2 (map #(Line2/line %1 %2) vs (concat (rest vs) [(first vs)])))))))
+
+(deftest test-line-split
+  (let [square #(.transform (.region (Ring2/square)) (Matrix3/translate %1 %2))]
+    (doseq [[a b] [[(star 0 500 0 0) (star 1 500 0.3 0.2)]
+                   [(star 2 100 0 0) (.transform (star 2 100 0 0) (Matrix3/rotate 0.01))]
+                   [(Region2/unionAll (tiles 4)) (Region2/unionAll [(square 0.5 0.5) (square 1 0) (square 2.5 3)])]]]
+      (assert-same-split (split-serial a b) (Split/splitLines a b)))))
+
+(deftest test-large-coordinates
+  (let [square #(.transform (.region (Ring2/square)) (Matrix3/translate %1 %2))]
+    (doseq [[x y] [[1e10 1e10] [-1e10 3e10] [2e12 -5e12]]]
+      (let [split (Split/split (square x y) (square (+ x 0.5) (+ y 0.5)))]
+        (is (= 2 (.size (.splits split))))
+        (is (= 6 (count (region-curves (.a split))) (count (region-curves (.b split)))))))))
+
+(deftest test-point-index
+  (let [regions [(.difference (Region2/unionAll (map #(Region2/of (into-array [%])) (.rings (circles 0 20))))
+                   (Region2/unionAll (map #(Region2/of (into-array [%])) (.rings (circles 1 10)))))
+                 (star 0 500 1 1)
+                 ;; overlapping rings, where the first ring containing a point decides the result
+                 (Region2. (concat (.rings (circles 2 20)) (.rings (star 1 50 1 1))))
+                 (Region2. [])]]
+    (doseq [^Region2 region regions]
+      (let [index  (.index region)
+            points (sample-points region)]
+        ;; the index is shared across threads
+        (doseq [[^Vec2 p r] (map vector points (pmap #(.test index ^Vec2 %) points))]
+          (assert-same-result (.test region p) r))))))
+
+(deftest test-bulk-contains
+  (let [rng     (java.util.Random. 0)
+        points  (repeatedly 1e3 #(Vec2. (* 2 (.nextDouble rng)) (* 2 (.nextDouble rng))))
+        bulk    (fn [^Region2 region points & [rule]]
+                  (let [xs  (double-array (map #(.x ^Vec2 %) points))
+                        ys  (double-array (map #(.y ^Vec2 %) points))
+                        out (boolean-array (count points))]
+                    (if rule
+                      (.contains region xs ys out ^Expression$FillRule rule)
+                      (.contains region xs ys out))
+                    (vec out)))]
+
+    (let [region (.difference (Region2/unionAll (map #(Region2/of (into-array [%])) (.rings (circles 0 20))))
+                   (Region2/unionAll (map #(Region2/of (into-array [%])) (.rings (circles 1 10)))))
+          points (sample-points region)
+          expected (map #(.contains region ^Vec2 %) points)]
+      (is (= expected (bulk region points)))
+      (is (= expected (bulk region points Expression$FillRule/NON_ZERO)))
+      (is (= expected (bulk region points Expression$FillRule/EVEN_ODD))))
+
+    ;; overlapping rings, which are only meaningful under a fill rule
+    (let [rings  (.rings (circles 2 20))
+          region (Region2. (seq rings))
+          inside (fn [^Vec2 p]
+                   (let [results (map #(.test ^Ring2 % p) rings)]
+                     (if (some #(.curve ^Ring2$Result %) results)
+                       -1
+                       (count (filter #(.inside ^Ring2$Result %) results)))))]
+      (is (= (map #(let [n (inside %)] (or (neg? n) (pos? n))) points)
+            (bulk region points Expression$FillRule/NON_ZERO)))
+      (is (= (map #(let [n (inside %)] (or (neg? n) (odd? n))) points)
+            (bulk region points Expression$FillRule/EVEN_ODD))))))
+
+(deftest test-deadline
+  (let [a (circles 1 40)
+        b (circles 2 40)]
+
+    ;; a deadline which doesn't pass has no effect
+    (is (= (region-curves (.union ^Region2 a b))
+          (region-curves (.union ^Region2 a b (Deadline/after 1 TimeUnit/MINUTES)))))
+
+    (let [^Deadline deadline (Deadline/cancellable)]
+      (.cancel deadline)
+      (doseq [f [#(.union ^Region2 a b deadline)
+                 #(.intersection ^Region2 a b deadline)
+                 #(.difference ^Region2 a b deadline)]]
+        (let [^DeadlineExceededException e (try (f) nil (catch DeadlineExceededException e e))]
+          (is (some? e))
+          (is (.cancelled e))
+          (is (= "split" (.stage e))))))
+
+    ;; a deadline which passes partway through interrupts the operation
+    (let [a (star 0 5e3 0 0)
+          b (star 1 5e3 0.3 0.2)
+          ^DeadlineExceededException e (try
+                                         (.union ^Region2 a b (Deadline/after 1 TimeUnit/MILLISECONDS))
+                                         nil
+                                         (catch DeadlineExceededException e e))]
+      (is (some? e))
+      (is (not (.cancelled e)))
+      (is (< (.elapsed e TimeUnit/MILLISECONDS) 1000))))
+
+  (is (thrown? UnsupportedOperationException (.cancel Deadline/NONE))))
+
+(deftest test-union-all
+  (doseq [[op fold regions] [[#(Region2/unionAll %) #(.union ^Region2 %1 %2) (map #(Region2/of (into-array [%])) (.rings (circles 1 40)))]
+                             [#(Region2/unionAll %) #(.union ^Region2 %1 %2) (tiles 5)]
+                             [#(Region2/intersectAll %) #(.intersection ^Region2 %1 %2) (map #(Region2/of (into-array [%])) (.rings (circles 2 5)))]]]
+    (let [^Region2 expected (reduce fold regions)
+          ^Region2 actual   (op regions)]
+      (is (= (count (.rings expected)) (count (.rings actual))))
+      (assert-same-region expected actual))))
+
+(deftest test-cascaded-union
+  (let [executor (Executors/newFixedThreadPool 4)]
+    (try
+      (doseq [regions [(map #(Region2/of (into-array [%])) (.rings (circles 1 40)))
+                       (tiles 5)
+                       []]
+              executor [nil executor]]
+        (let [^Region2 expected (Region2/unionAll regions)
+              ^Region2 actual   (Region2/cascadedUnion regions executor)]
+          (is (= (count (.rings expected)) (count (.rings actual))))
+          (assert-same-region expected actual)))
+      (finally
+        (.shutdown executor)))))
+
+(deftest test-arrangement
+  (let [rng    (java.util.Random. 0)
+        shapes (map #(Region2/of (into-array [%])) (.rings (circles 3 60)))
+        ops    (map-indexed (fn [i r] [(or (< i 2) (pos? (.nextInt rng 3))) r]) shapes)
+        ^Region2 expected (reduce (fn [^Region2 acc [add? r]] (if add? (.union acc r) (.difference acc r))) (Region2. []) ops)
+        ^Region2 actual   (.region ^Arrangement (reduce (fn [^Arrangement acc [add? r]] (if add? (.add acc ^Region2 r) (.remove acc ^Region2 r))) (Arrangement.) ops))]
+    (is (= (count (.rings expected)) (count (.rings actual))))
+    (assert-same-region expected actual)))
+
+(deftest test-expression
+  (let [[a b c d] (map #(Region2/of (into-array [%])) (.rings (circles 4 4)))
+        ^Region2 expected (.difference (.union ^Region2 a b) (.intersection ^Region2 c d))
+        ^Region2 actual   (.evaluate
+                            (.difference
+                              (.union (Expression/of a) (Expression/of b))
+                              (.intersection (Expression/of c) (Expression/of d))))]
+    (assert-same-region expected actual))
+
+  ;; the rings within an operand may overlap, and are filled per the fill rule
+  (let [rng   (java.util.Random. 0)
+        rings (.rings (circles 1 40))
+        r     (Region2/of rings)
+        ^Region2 non-zero (.evaluate (Expression/of r) Expression$FillRule/NON_ZERO)
+        ^Region2 even-odd (.evaluate (Expression/of r) Expression$FillRule/EVEN_ODD)]
+    (dotimes [_ 1e3]
+      (let [p (Vec2. (* 2 (.nextDouble rng)) (* 2 (.nextDouble rng)))
+            n (count (filter #(.inside (.test ^Ring2 % p)) rings))]
+        (when-not (or (some #(.curve (.test ^Ring2 % p)) rings) (.curve (.test non-zero p)) (.curve (.test even-odd p)))
+          (is (= (pos? n) (.contains non-zero p)))
+          (is (= (odd? n) (.contains even-odd p))))))))
+
+(deftest test-face-walking
+  (let [square  #(.transform (.region (Ring2/square)) (Matrix3/translate %1 %2))
+        checker (Region2/unionAll (for [x (range 4) y (range 4) :when (even? (+ x y))] (square x y)))]
+    (doseq [[^Region2 r n] [[(.union ^Region2 (square 0 0) (square 1 1)) 2]
+                            [(.union ^Region2 (square 0 0) (square 1 0)) 1]
+                            [(.difference (.transform (.region (Ring2/square)) (Matrix3/scale 3.0)) (square 1 1)) 2]
+                            [(.union checker (square 0 1)) 6]
+                            [(.difference checker (.transform (.region (Ring2/square)) (Matrix3/scale 2.0))) 6]]]
+      (is (= n (count (.rings r))))
+      (doseq [^Ring2 ring (.rings r)]
+        (is (< 1e-6 (Math/abs (.area ring))))))
+
+    ;; far from the origin, the faces aren't mistaken for arcs which retrace each other
+    (doseq [[x y] [[1e9 1e9] [3e10 3e10]]]
+      (is (= 1 (count (.rings (.union ^Region2 (square x y) (square (+ x 0.5) (+ y 0.5))))))))))
+
+;;;
+
+(defn- winding [^Ring2 ring ^Vec2 p]
+  (->> (.curves ring)
+    (map #(Crossings/crossing % (.x p) (.y p) (inc (.ux (.bounds ring)))))
+    (reduce +)))
+
+(deftest test-ring-crossings
+  (let [rng (java.util.Random. 0)]
+    (doseq [^Ring2 ring [(Ring2/circle)
+                         (Ring2/square)
+                         (.transform (Ring2/circle) (matrix [0.3 -0.2 2 0.5]))
+                         (.reverse (Ring2/circle))]]
+      (let [sign (if (.isClockwise ring) -1 1)]
+
+        ;; points on the curves are on the edge
+        (doseq [^Curve2 c (.curves ring)
+                t [0 0.25 0.5 0.75 1]]
+          (is (some? (.curve (.test ring (.position c t))))))
+
+        ;; every crossing is in the same direction, and agrees with the containment test
+        (dotimes [_ 1e3]
+          (let [p (Vec2. (- (* 4 (.nextDouble rng)) 1.5) (- (* 4 (.nextDouble rng)) 1.5))
+                r (.test ring p)]
+            (when-not (.curve r)
+              (is (= (if (.inside r) sign 0) (winding ring p))))))))))
+
 (deftest ^:stress test-region-ops
   (let [n          1e6
         chunk-size 1e3